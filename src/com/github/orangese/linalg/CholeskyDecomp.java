@@ -0,0 +1,95 @@
+package com.github.orangese.linalg;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class CholeskyDecomp {
+
+    private final Matrix lower;
+
+    public CholeskyDecomp(Matrix mat) {
+        this(mat, TiledFactorizations.DEFAULT_TILE_SIZE, ForkJoinPool.commonPool());
+    }
+
+    // only the lower triangle of mat is read; symmetry is the caller's responsibility
+    CholeskyDecomp(Matrix mat, int tileSize, ForkJoinPool pool) {
+        if (!mat.isSquare()) {
+            throw new IllegalArgumentException("cannot compute cholesky decomposition for nonsquare matrix");
+        }
+        lower = new Matrix(mat);
+        TiledFactorizations.factorCholesky(lower.data(), lower.rowDim(), tileSize, pool);
+        for (int i = 0; i < lower.rowDim(); i++) {
+            for (int j = i + 1; j < lower.colDim(); j++) {
+                lower.set(i, j, 0);
+            }
+        }
+    }
+
+    public Matrix L() {
+        return lower;
+    }
+
+    public Matrix solve(Matrix b) {
+        if (lower.rowDim() != b.rowDim()) {
+            throw new IllegalArgumentException("equation is not solveable for LHS with shape " + lower.shape() +
+                    " and RHS with shape " + b.shape());
+        }
+        final int n = lower.rowDim();
+        final int nrhs = b.colDim();
+        final double[] l = lower.data();
+
+        Matrix x = new Matrix(b);
+        final double[] xData = x.data();
+
+        for (int i = 0; i < n; i++) {
+            for (int p = 0; p < i; p++) {
+                final double lip = l[i * n + p];
+                for (int k = 0; k < nrhs; k++) {
+                    xData[i * nrhs + k] -= lip * xData[p * nrhs + k];
+                }
+            }
+            for (int k = 0; k < nrhs; k++) {
+                xData[i * nrhs + k] /= l[i * n + i];
+            }
+        }
+
+        for (int i = n - 1; i >= 0; i--) {
+            for (int p = i + 1; p < n; p++) {
+                final double lpi = l[p * n + i];
+                for (int k = 0; k < nrhs; k++) {
+                    xData[i * nrhs + k] -= lpi * xData[p * nrhs + k];
+                }
+            }
+            for (int k = 0; k < nrhs; k++) {
+                xData[i * nrhs + k] /= l[i * n + i];
+            }
+        }
+
+        return x;
+    }
+
+    public Vector solve(Vector b) {
+        return Vector.asVector(solve(Matrix.viewOf(b)));
+    }
+
+    public Matrix inv() {
+        return solve(Matrix.eye(lower.shape()));
+    }
+
+    public Scalar det() {
+        return new Scalar(detValue());
+    }
+
+    public double detValue() {
+        double det = 1;
+        for (int i = 0; i < lower.rowDim(); i++) {
+            det *= lower.get(i, i);
+        }
+        return det * det;
+    }
+
+    @Override
+    public String toString() {
+        return "L: " + L();
+    }
+
+}
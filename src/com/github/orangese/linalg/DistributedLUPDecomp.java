@@ -0,0 +1,417 @@
+package com.github.orangese.linalg;
+
+import java.util.Arrays;
+
+// right-looking blocked LU with partial pivoting over a block-cyclic DistributedMatrix. the factors, permutation
+// and singularity test match LUPDecomp: P A = L U with pivots below tol * max|A| counting as zero
+public class DistributedLUPDecomp {
+
+    private static final int TAG_PANEL = 20;
+    private static final int TAG_PANEL_BACK = 21;
+    private static final int TAG_PIVOTS = 22;
+    private static final int TAG_SWAP = 23;
+    private static final int TAG_DIAG = 24;
+    private static final int TAG_L = 25;
+    private static final int TAG_U = 26;
+    private static final int TAG_PARTIAL = 27;
+    private static final int TAG_SOLUTION = 28;
+
+    private final DistributedMatrix lu;
+    private final ProcessGrid grid;
+    private final Transport transport;
+    private final int[] permArray;
+    private final double norm1;
+    private final double threshold;
+    private int numPermutations;
+    private boolean singular;
+
+    public DistributedLUPDecomp(DistributedMatrix mat) {
+        this(mat, LUPDecomp.DEFAULT_TOL);
+    }
+
+    public DistributedLUPDecomp(DistributedMatrix mat, double tol) {
+        if (!(tol >= 0)) {
+            throw new IllegalArgumentException("tol must be a double greater than or equal to 0");
+        }
+        if (mat.shape().rowDim() != mat.shape().colDim()) {
+            throw new IllegalArgumentException("cannot perform distributed LU on nonsquare matrix with shape " +
+                    mat.shape());
+        }
+        final int n = mat.shape().rowDim();
+        final KernelMetrics.Probe probe = KernelMetrics.start(KernelMetrics.Kernel.LU, n, n, 0);
+        lu = mat.copy();
+        grid = mat.grid();
+        transport = grid.transport();
+
+        // max|A| for the pivot threshold and the column sums for the 1-norm, which the condition estimate needs
+        double[] colSums = new double[n];
+        double maxAbs = 0;
+        for (int li = 0; li < lu.localRows(); li++) {
+            for (int lj = 0; lj < lu.localCols(); lj++) {
+                final int bj = lu.globalCol(lj);
+                final int cols = lu.blockColDim(bj);
+                final double[] block = lu.localBlock(li, lj);
+                for (int e = 0; e < block.length; e++) {
+                    final double abs = Math.abs(block[e]);
+                    maxAbs = Math.max(maxAbs, abs);
+                    colSums[bj * lu.blockSize() + e % cols] += abs;
+                }
+            }
+        }
+        maxAbs = grid.allReduce(new double[]{maxAbs}, true)[0];
+        colSums = grid.allReduce(colSums, false);
+        norm1 = Arrays.stream(colSums).max().orElse(0);
+        threshold = LUPDecomp.pivotThreshold(maxAbs, tol);
+
+        permArray = new int[n];
+        for (int i = 0; i < n; i++) {
+            permArray[i] = i;
+        }
+        for (int k = 0; k < lu.blockCols(); k++) {
+            final int[] pivots = factorPanel(k);
+            swapRows(k, pivots);
+            solveRowPanel(k);
+            updateTrailing(k);
+        }
+
+        KernelMetrics.stop(probe, 2.0 * n * n * n / 3);
+    }
+
+    // gathers block column k onto the rank owning its diagonal block, factors it there and sends it back
+    private int[] factorPanel(int k) {
+        final int bs = lu.blockSize();
+        final int k0 = k * bs;
+        final int w = lu.blockColDim(k);
+        final int height = lu.shape().rowDim() - k0;
+        final int ownerCol = k % grid.cols();
+        final int diag = grid.owner(k, k);
+
+        if (grid.myCol() == ownerCol) {
+            final int lk = k / grid.cols();
+            for (int li = 0; li < lu.localRows(); li++) {
+                if (lu.globalRow(li) >= k) {
+                    transport.send(diag, TAG_PANEL, lu.localBlock(li, lk));
+                }
+            }
+        }
+
+        if (transport.rank() == diag) {
+            double[] panel = new double[height * w];
+            for (int bi = k; bi < lu.blockRows(); bi++) {
+                final double[] block = transport.receive(grid.owner(bi, k), TAG_PANEL);
+                System.arraycopy(block, 0, panel, (bi - k) * bs * w, lu.blockRowDim(bi) * w);
+            }
+
+            int[] pivots = new int[w];
+            final boolean panelSingular = TileKernels.getrf(panel, 0, w, height, w, pivots, threshold);
+            double[] message = new double[w + 1];
+            for (int t = 0; t < w; t++) {
+                message[t] = pivots[t];
+            }
+            message[w] = panelSingular ? 1 : 0;
+            for (int r = 0; r < transport.size(); r++) {
+                transport.send(r, TAG_PIVOTS, message);
+            }
+
+            for (int bi = k; bi < lu.blockRows(); bi++) {
+                final int from = (bi - k) * bs * w;
+                transport.send(grid.owner(bi, k), TAG_PANEL_BACK,
+                        Arrays.copyOfRange(panel, from, from + lu.blockRowDim(bi) * w));
+            }
+        }
+
+        if (grid.myCol() == ownerCol) {
+            final int lk = k / grid.cols();
+            for (int li = 0; li < lu.localRows(); li++) {
+                if (lu.globalRow(li) >= k) {
+                    lu.setLocalBlock(li, lk, transport.receive(diag, TAG_PANEL_BACK));
+                }
+            }
+        }
+
+        final double[] message = transport.receive(diag, TAG_PIVOTS);
+        int[] pivots = new int[w];
+        for (int t = 0; t < w; t++) {
+            pivots[t] = (int) message[t];
+            final int row = k0 + t;
+            final int max = k0 + pivots[t];
+            if (max != row) {
+                int tmp = permArray[max];
+                permArray[max] = permArray[row];
+                permArray[row] = tmp;
+                numPermutations++;
+            }
+        }
+        singular |= message[w] != 0;
+        return pivots;
+    }
+
+    // applies the panel's row swaps to every other block column, trading row segments between process rows
+    private void swapRows(int k, int[] pivots) {
+        final int bs = lu.blockSize();
+        final int myRow = grid.myRow();
+        for (int t = 0; t < pivots.length; t++) {
+            final int r1 = k * bs + t;
+            final int r2 = k * bs + pivots[t];
+            if (r1 == r2) {
+                continue;
+            }
+            final int p1 = (r1 / bs) % grid.rows();
+            final int p2 = (r2 / bs) % grid.rows();
+            if (myRow != p1 && myRow != p2) {
+                continue;
+            }
+
+            if (p1 == p2) {
+                for (int lj = 0; lj < lu.localCols(); lj++) {
+                    final int bj = lu.globalCol(lj);
+                    if (bj == k) {
+                        continue;
+                    }
+                    final int cols = lu.blockColDim(bj);
+                    TileKernels.swapRows(lu.localBlock(r1 / bs / grid.rows(), lj), (r1 % bs) * cols,
+                            lu.localBlock(r2 / bs / grid.rows(), lj), (r2 % bs) * cols, cols);
+                }
+                continue;
+            }
+
+            final int mine = myRow == p1 ? r1 : r2;
+            final int partner = grid.rank(myRow == p1 ? p2 : p1, grid.myCol());
+            final int li = mine / bs / grid.rows();
+            int length = 0;
+            for (int lj = 0; lj < lu.localCols(); lj++) {
+                if (lu.globalCol(lj) != k) {
+                    length += lu.blockColDim(lu.globalCol(lj));
+                }
+            }
+            double[] out = new double[length];
+            int pos = 0;
+            for (int lj = 0; lj < lu.localCols(); lj++) {
+                final int bj = lu.globalCol(lj);
+                if (bj != k) {
+                    final int cols = lu.blockColDim(bj);
+                    System.arraycopy(lu.localBlock(li, lj), (mine % bs) * cols, out, pos, cols);
+                    pos += cols;
+                }
+            }
+            transport.send(partner, TAG_SWAP, out);
+            final double[] in = transport.receive(partner, TAG_SWAP);
+            pos = 0;
+            for (int lj = 0; lj < lu.localCols(); lj++) {
+                final int bj = lu.globalCol(lj);
+                if (bj != k) {
+                    final int cols = lu.blockColDim(bj);
+                    System.arraycopy(in, pos, lu.localBlock(li, lj), (mine % bs) * cols, cols);
+                    pos += cols;
+                }
+            }
+        }
+    }
+
+    // U(k, j) = L(k, k)^-1 A(k, j) for j > k on the process row that owns block row k
+    private void solveRowPanel(int k) {
+        final int ownerRow = k % grid.rows();
+        if (grid.myRow() != ownerRow) {
+            return;
+        }
+        final int w = lu.blockColDim(k);
+        final int diag = grid.owner(k, k);
+        final int lk = k / grid.rows();
+
+        double[] lkk;
+        if (transport.rank() == diag) {
+            // rows of block row k are never swapped again, so the diagonal block can be shared as is
+            lkk = lu.localBlock(lk, k / grid.cols());
+            for (int c = 0; c < grid.cols(); c++) {
+                if (c != grid.myCol()) {
+                    transport.send(grid.rank(ownerRow, c), TAG_DIAG, lkk);
+                }
+            }
+        } else {
+            lkk = transport.receive(diag, TAG_DIAG);
+        }
+
+        for (int lj = 0; lj < lu.localCols(); lj++) {
+            final int bj = lu.globalCol(lj);
+            if (bj > k) {
+                final int cols = lu.blockColDim(bj);
+                TileKernels.trsmLowerUnit(lkk, 0, w, lu.localBlock(lk, lj), 0, cols, w, cols);
+            }
+        }
+    }
+
+    // A(i, j) -= L(i, k) U(k, j) for i, j > k, with L broadcast along process rows and U along process columns
+    private void updateTrailing(int k) {
+        final int w = lu.blockColDim(k);
+        final int ownerCol = k % grid.cols();
+        final int ownerRow = k % grid.rows();
+
+        double[][] lPanel = new double[lu.localRows()][];
+        if (grid.myCol() == ownerCol) {
+            final int lk = k / grid.cols();
+            for (int li = 0; li < lu.localRows(); li++) {
+                if (lu.globalRow(li) > k) {
+                    lPanel[li] = lu.localBlock(li, lk);
+                    for (int c = 0; c < grid.cols(); c++) {
+                        if (c != ownerCol) {
+                            // later panels swap rows of this block, so receivers get their own copy
+                            transport.send(grid.rank(grid.myRow(), c), TAG_L, lPanel[li].clone());
+                        }
+                    }
+                }
+            }
+        } else {
+            for (int li = 0; li < lu.localRows(); li++) {
+                if (lu.globalRow(li) > k) {
+                    lPanel[li] = transport.receive(grid.rank(grid.myRow(), ownerCol), TAG_L);
+                }
+            }
+        }
+
+        double[][] uPanel = new double[lu.localCols()][];
+        if (grid.myRow() == ownerRow) {
+            final int lk = k / grid.rows();
+            for (int lj = 0; lj < lu.localCols(); lj++) {
+                if (lu.globalCol(lj) > k) {
+                    uPanel[lj] = lu.localBlock(lk, lj);
+                    for (int r = 0; r < grid.rows(); r++) {
+                        if (r != ownerRow) {
+                            transport.send(grid.rank(r, grid.myCol()), TAG_U, uPanel[lj]);
+                        }
+                    }
+                }
+            }
+        } else {
+            for (int lj = 0; lj < lu.localCols(); lj++) {
+                if (lu.globalCol(lj) > k) {
+                    uPanel[lj] = transport.receive(grid.rank(ownerRow, grid.myCol()), TAG_U);
+                }
+            }
+        }
+
+        for (int li = 0; li < lu.localRows(); li++) {
+            if (lPanel[li] == null) {
+                continue;
+            }
+            final int rows = lu.blockRowDim(lu.globalRow(li));
+            for (int lj = 0; lj < lu.localCols(); lj++) {
+                if (uPanel[lj] == null) {
+                    continue;
+                }
+                final int cols = lu.blockColDim(lu.globalCol(lj));
+                TileKernels.gemm(-1, lPanel[li], 0, w, uPanel[lj], 0, cols,
+                        lu.localBlock(li, lj), 0, cols, rows, cols, w);
+            }
+        }
+    }
+
+    // every rank passes the same b and gets the whole solution back
+    public Matrix solve(Matrix b) {
+        if (singular) {
+            throw new ArithmeticException("matrix is singular");
+        }
+        final int n = lu.shape().rowDim();
+        if (b.rowDim() != n) {
+            throw new IllegalArgumentException("equation is not solveable for LHS with shape " + lu.shape() +
+                    " and RHS with shape " + b.shape());
+        }
+        final KernelMetrics.Probe probe = KernelMetrics.start(KernelMetrics.Kernel.SOLVE, n, b.colDim(), n);
+        final int nrhs = b.colDim();
+        double[] x = new double[n * nrhs];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < nrhs; j++) {
+                x[i * nrhs + j] = b.get(permArray[i], j);
+            }
+        }
+
+        for (int k = 0; k < lu.blockRows(); k++) {
+            substitute(k, x, nrhs, true);
+        }
+        for (int k = lu.blockRows() - 1; k >= 0; k--) {
+            substitute(k, x, nrhs, false);
+        }
+
+        KernelMetrics.stop(probe, 2.0 * n * n * nrhs);
+        return Matrix.wrap(x, new Shape(n, nrhs));
+    }
+
+    public Vector solve(Vector b) {
+        return Vector.asVector(solve(Matrix.viewOf(b)));
+    }
+
+    // one block step of forward (L) or backward (U) substitution: the owning process row sums its off-diagonal
+    // contributions onto the diagonal rank, which solves for block k of x and sends it to everyone
+    private void substitute(int k, double[] x, int nrhs, boolean lower) {
+        final int bs = lu.blockSize();
+        final int k0 = k * bs;
+        final int w = lu.blockRowDim(k);
+        final int ownerRow = k % grid.rows();
+        final int diag = grid.owner(k, k);
+
+        if (grid.myRow() == ownerRow) {
+            final int lk = k / grid.rows();
+            double[] partial = new double[w * nrhs];
+            for (int lj = 0; lj < lu.localCols(); lj++) {
+                final int bj = lu.globalCol(lj);
+                if (lower ? bj < k : bj > k) {
+                    final int cols = lu.blockColDim(bj);
+                    TileKernels.gemm(1, lu.localBlock(lk, lj), 0, cols, x, bj * bs * nrhs, nrhs,
+                            partial, 0, nrhs, w, nrhs, cols);
+                }
+            }
+            transport.send(diag, TAG_PARTIAL, partial);
+        }
+
+        if (transport.rank() == diag) {
+            double[] xk = Arrays.copyOfRange(x, k0 * nrhs, (k0 + w) * nrhs);
+            for (int c = 0; c < grid.cols(); c++) {
+                final double[] partial = transport.receive(grid.rank(ownerRow, c), TAG_PARTIAL);
+                for (int e = 0; e < xk.length; e++) {
+                    xk[e] -= partial[e];
+                }
+            }
+            final double[] block = lu.localBlock(k / grid.rows(), k / grid.cols());
+            if (lower) {
+                TileKernels.trsmLowerUnit(block, 0, w, xk, 0, nrhs, w, nrhs);
+            } else {
+                TileKernels.trsmUpper(block, 0, w, xk, 0, nrhs, w, nrhs);
+            }
+            for (int r = 0; r < transport.size(); r++) {
+                transport.send(r, TAG_SOLUTION, xk);
+            }
+        }
+
+        System.arraycopy(transport.receive(diag, TAG_SOLUTION), 0, x, k0 * nrhs, w * nrhs);
+    }
+
+    // the factors as an ordinary LUPDecomp on root, null on every other rank
+    public LUPDecomp toLUPDecomp(int root) {
+        Matrix decomp = lu.gather(root);
+        if (decomp == null) {
+            return null;
+        }
+        return new LUPDecomp(null, decomp, permArray.clone(), numPermutations, singular, norm1, threshold);
+    }
+
+    public DistributedMatrix factors() {
+        return lu;
+    }
+
+    public int[] getPermutation() {
+        return permArray.clone();
+    }
+
+    public int numPermutations() {
+        return numPermutations;
+    }
+
+    public boolean isSingular() {
+        return singular;
+    }
+
+    @Override
+    public String toString() {
+        return "DistributedLUPDecomp(" + lu + ")";
+    }
+
+}
@@ -0,0 +1,265 @@
+package com.github.orangese.linalg;
+
+import java.util.Objects;
+
+// a matrix split into blockSize x blockSize blocks dealt out 2d block-cyclically over a ProcessGrid. every rank
+// holds only its own blocks and every rank must make the same calls in the same order, spmd style
+public class DistributedMatrix {
+
+    private static final int TAG_META = 10;
+    private static final int TAG_SCATTER = 11;
+    private static final int TAG_GATHER = 12;
+    private static final int TAG_ROW_PANEL = 13;
+    private static final int TAG_COL_PANEL = 14;
+
+    private final ProcessGrid grid;
+    private final Shape shape;
+    private final int blockSize;
+    private final int blockRows;
+    private final int blockCols;
+    private final int localRows;
+    private final int localCols;
+    private final double[][] blocks;
+
+    private DistributedMatrix(ProcessGrid grid, Shape shape, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be an int greater than 0");
+        }
+        this.grid = grid;
+        this.shape = shape;
+        this.blockSize = blockSize;
+        this.blockRows = ceilDiv(shape.rowDim(), blockSize);
+        this.blockCols = ceilDiv(shape.colDim(), blockSize);
+        this.localRows = localCount(blockRows, grid.myRow(), grid.rows());
+        this.localCols = localCount(blockCols, grid.myCol(), grid.cols());
+        this.blocks = new double[localRows * localCols][];
+        for (int li = 0; li < localRows; li++) {
+            for (int lj = 0; lj < localCols; lj++) {
+                blocks[li * localCols + lj] = new double[blockRowDim(globalRow(li)) * blockColDim(globalCol(lj))];
+            }
+        }
+    }
+
+    public static DistributedMatrix zeros(ProcessGrid grid, Shape shape, int blockSize) {
+        return new DistributedMatrix(Objects.requireNonNull(grid), shape, blockSize);
+    }
+
+    // mat is only read on root and may be null everywhere else
+    public static DistributedMatrix scatter(ProcessGrid grid, int root, Matrix mat, int blockSize) {
+        final Transport transport = grid.transport();
+        if (transport.rank() == root) {
+            Objects.requireNonNull(mat);
+            for (int r = 0; r < transport.size(); r++) {
+                transport.send(r, TAG_META, new double[]{mat.rowDim(), mat.colDim(), blockSize});
+            }
+        }
+        final double[] meta = transport.receive(root, TAG_META);
+        DistributedMatrix dist = new DistributedMatrix(grid, new Shape((int) meta[0], (int) meta[1]), (int) meta[2]);
+
+        if (transport.rank() == root) {
+            for (int bi = 0; bi < dist.blockRows; bi++) {
+                for (int bj = 0; bj < dist.blockCols; bj++) {
+                    final int rows = dist.blockRowDim(bi);
+                    final int cols = dist.blockColDim(bj);
+                    double[] block = new double[rows * cols];
+                    for (int i = 0; i < rows; i++) {
+                        for (int j = 0; j < cols; j++) {
+                            block[i * cols + j] = mat.get(bi * blockSize + i, bj * blockSize + j);
+                        }
+                    }
+                    transport.send(grid.owner(bi, bj), TAG_SCATTER, block);
+                }
+            }
+        }
+        for (int li = 0; li < dist.localRows; li++) {
+            for (int lj = 0; lj < dist.localCols; lj++) {
+                dist.blocks[li * dist.localCols + lj] = transport.receive(root, TAG_SCATTER);
+            }
+        }
+        return dist;
+    }
+
+    // the whole matrix on root, null on every other rank
+    public Matrix gather(int root) {
+        final Transport transport = grid.transport();
+        for (double[] block : blocks) {
+            transport.send(root, TAG_GATHER, block);
+        }
+        if (transport.rank() != root) {
+            return null;
+        }
+
+        Matrix result = new Matrix(shape);
+        final double[] out = result.data();
+        final int n = shape.colDim();
+        for (int bi = 0; bi < blockRows; bi++) {
+            for (int bj = 0; bj < blockCols; bj++) {
+                final double[] block = transport.receive(grid.owner(bi, bj), TAG_GATHER);
+                final int cols = blockColDim(bj);
+                for (int i = 0; i < blockRowDim(bi); i++) {
+                    System.arraycopy(block, i * cols, out, (bi * blockSize + i) * n + bj * blockSize, cols);
+                }
+            }
+        }
+        result.markModified();
+        return result;
+    }
+
+    // summa: for each block column k of this, its owners broadcast A(:, k) along process rows and the owners of
+    // B(k, :) broadcast along process columns, then every rank updates the C blocks it owns
+    public DistributedMatrix mul(DistributedMatrix o) {
+        if (o.grid != grid || o.blockSize != blockSize) {
+            throw new IllegalArgumentException("cannot multiply distributed matrices with different layouts");
+        }
+        if (shape.colDim() != o.shape.rowDim()) {
+            throw new IllegalArgumentException(String.format(
+                    "cannot perform distributed multiplication between shapes %s and %s", shape, o.shape
+            ));
+        }
+        final KernelMetrics.Probe probe = KernelMetrics.start(KernelMetrics.Kernel.MATMUL,
+                shape.rowDim(), o.shape.colDim(), shape.colDim());
+        DistributedMatrix result = new DistributedMatrix(grid, new Shape(shape.rowDim(), o.shape.colDim()), blockSize);
+
+        double[][] aPanel = new double[localRows][];
+        double[][] bPanel = new double[o.localCols][];
+        for (int k = 0; k < blockCols; k++) {
+            broadcastRowPanel(k, aPanel, TAG_ROW_PANEL, false);
+            o.broadcastColPanel(k, bPanel, TAG_COL_PANEL, false);
+
+            final int inner = blockColDim(k);
+            for (int li = 0; li < result.localRows; li++) {
+                for (int lj = 0; lj < result.localCols; lj++) {
+                    final int cols = result.blockColDim(result.globalCol(lj));
+                    TileKernels.gemmBlocked(aPanel[li], 0, inner, bPanel[lj], 0, cols,
+                            result.blocks[li * result.localCols + lj], 0, cols,
+                            result.blockRowDim(result.globalRow(li)), cols, inner);
+                }
+            }
+        }
+
+        KernelMetrics.stop(probe, 2.0 * shape.rowDim() * o.shape.colDim() * shape.colDim());
+        return result;
+    }
+
+    // fills panel[li] with block (globalRow(li), k) on every rank of each process row, from the rank that owns it.
+    // copy sends clones for blocks their owner will still write to
+    void broadcastRowPanel(int k, double[][] panel, int tag, boolean copy) {
+        final Transport transport = grid.transport();
+        final int ownerCol = k % grid.cols();
+        final int source = grid.rank(grid.myRow(), ownerCol);
+        if (grid.myCol() == ownerCol) {
+            final int lk = k / grid.cols();
+            for (int li = 0; li < localRows; li++) {
+                final double[] block = blocks[li * localCols + lk];
+                panel[li] = block;
+                for (int c = 0; c < grid.cols(); c++) {
+                    if (c != ownerCol) {
+                        transport.send(grid.rank(grid.myRow(), c), tag, copy ? block.clone() : block);
+                    }
+                }
+            }
+        } else {
+            for (int li = 0; li < localRows; li++) {
+                panel[li] = transport.receive(source, tag);
+            }
+        }
+    }
+
+    // fills panel[lj] with block (k, globalCol(lj)) on every rank of each process column
+    void broadcastColPanel(int k, double[][] panel, int tag, boolean copy) {
+        final Transport transport = grid.transport();
+        final int ownerRow = k % grid.rows();
+        final int source = grid.rank(ownerRow, grid.myCol());
+        if (grid.myRow() == ownerRow) {
+            final int lk = k / grid.rows();
+            for (int lj = 0; lj < localCols; lj++) {
+                final double[] block = blocks[lk * localCols + lj];
+                panel[lj] = block;
+                for (int r = 0; r < grid.rows(); r++) {
+                    if (r != ownerRow) {
+                        transport.send(grid.rank(r, grid.myCol()), tag, copy ? block.clone() : block);
+                    }
+                }
+            }
+        } else {
+            for (int lj = 0; lj < localCols; lj++) {
+                panel[lj] = transport.receive(source, tag);
+            }
+        }
+    }
+
+    // a copy with its own blocks, for algorithms that factor in place
+    DistributedMatrix copy() {
+        DistributedMatrix copy = new DistributedMatrix(grid, shape, blockSize);
+        for (int b = 0; b < blocks.length; b++) {
+            copy.blocks[b] = blocks[b].clone();
+        }
+        return copy;
+    }
+
+    public ProcessGrid grid() {
+        return grid;
+    }
+
+    public Shape shape() {
+        return shape;
+    }
+
+    public int blockSize() {
+        return blockSize;
+    }
+
+    int blockRows() {
+        return blockRows;
+    }
+
+    int blockCols() {
+        return blockCols;
+    }
+
+    int localRows() {
+        return localRows;
+    }
+
+    int localCols() {
+        return localCols;
+    }
+
+    int globalRow(int li) {
+        return grid.myRow() + li * grid.rows();
+    }
+
+    int globalCol(int lj) {
+        return grid.myCol() + lj * grid.cols();
+    }
+
+    int blockRowDim(int bi) {
+        return Math.min(blockSize, shape.rowDim() - bi * blockSize);
+    }
+
+    int blockColDim(int bj) {
+        return Math.min(blockSize, shape.colDim() - bj * blockSize);
+    }
+
+    double[] localBlock(int li, int lj) {
+        return blocks[li * localCols + lj];
+    }
+
+    void setLocalBlock(int li, int lj, double[] block) {
+        blocks[li * localCols + lj] = block;
+    }
+
+    private static int localCount(int blocks, int coord, int gridDim) {
+        return coord < blocks ? (blocks - coord + gridDim - 1) / gridDim : 0;
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+
+    @Override
+    public String toString() {
+        return "DistributedMatrix(" + shape + ", blockSize " + blockSize + ", " + grid + ")";
+    }
+
+}
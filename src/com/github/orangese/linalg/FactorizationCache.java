@@ -0,0 +1,212 @@
+package com.github.orangese.linalg;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+public class FactorizationCache {
+
+    public enum Eviction { LRU, LFU }
+
+    // IDENTITY matches the same backing array at the same version; CONTENT matches any equal matrix
+    public enum KeyMode { IDENTITY, CONTENT }
+
+    private static volatile FactorizationCache global;
+
+    private final int capacity;
+    private final Eviction eviction;
+    private final KeyMode keyMode;
+    private final LinkedHashMap<Key, Entry> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public FactorizationCache(int capacity, Eviction eviction, KeyMode keyMode) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be an int greater than 0");
+        }
+        this.capacity = capacity;
+        this.eviction = Objects.requireNonNull(eviction);
+        this.keyMode = Objects.requireNonNull(keyMode);
+        this.entries = new LinkedHashMap<>(capacity * 2, 0.75f, true);
+    }
+
+    public static void enable(int capacity) {
+        enable(new FactorizationCache(capacity, Eviction.LRU, KeyMode.IDENTITY));
+    }
+
+    public static void enable(FactorizationCache cache) {
+        global = Objects.requireNonNull(cache);
+    }
+
+    public static void disable() {
+        global = null;
+    }
+
+    public static FactorizationCache global() {
+        return global;
+    }
+
+    public LUPDecomp lu(Matrix mat) {
+        return lookup(mat);
+    }
+
+    // writes through data() bypass version tracking; call mat.markModified() or this afterwards
+    public synchronized void invalidate(Matrix mat) {
+        if (entries.keySet().removeIf(key -> key.data == mat.data())) {
+            invalidations++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized long invalidations() {
+        return invalidations;
+    }
+
+    public synchronized double hitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    private LUPDecomp lookup(Matrix mat) {
+        final Key key = keyMode == KeyMode.IDENTITY ? Key.identity(mat) : Key.content(mat);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                entry.uses++;
+                return entry.decomp;
+            }
+            misses++;
+        }
+
+        // factor outside the lock so that other threads keep hitting while this one does O(n^3) work. a CONTENT
+        // entry is shared by every equal matrix, so it factors the frozen snapshot rather than holding on to this
+        // caller's mutable matrix, which may change or be dropped while the entry lives
+        LUPDecomp decomp = new LUPDecomp(key.snapshot != null ? key.snapshot : mat).share();
+
+        synchronized (this) {
+            if (keyMode == KeyMode.IDENTITY &&
+                    entries.keySet().removeIf(k -> k.data == key.data && k.version != key.version)) {
+                invalidations++;
+            }
+            if (entries.size() >= capacity) {
+                evict();
+            }
+            entries.put(key, new Entry(decomp));
+        }
+        return decomp;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        if (eviction == Eviction.LRU) {
+            it.next();
+            it.remove();
+        } else {
+            // iteration runs from least to most recently used, so ties go to the older entry
+            Key victim = null;
+            long fewest = Long.MAX_VALUE;
+            while (it.hasNext()) {
+                Map.Entry<Key, Entry> e = it.next();
+                if (e.getValue().uses < fewest) {
+                    fewest = e.getValue().uses;
+                    victim = e.getKey();
+                }
+            }
+            entries.remove(victim);
+        }
+        evictions++;
+    }
+
+    private static final class Entry {
+
+        private final LUPDecomp decomp;
+        private long uses;
+
+        private Entry(LUPDecomp decomp) {
+            this.decomp = decomp;
+        }
+
+    }
+
+    private static final class Key {
+
+        private final double[] data;
+        private final int[] layout;
+        private final Shape shape;
+        private final long version;
+        private final int hash;
+        private final Matrix snapshot;
+
+        private Key(double[] data, int[] layout, Shape shape, long version, int hash, Matrix snapshot) {
+            this.data = data;
+            this.layout = layout;
+            this.shape = shape;
+            this.version = version;
+            this.hash = hash;
+            this.snapshot = snapshot;
+        }
+
+        private static Key identity(Matrix mat) {
+            // a transpose is a different view of the same array, so its strides go into the key
+            int[] layout = {
+                    mat.rowDim() > 1 ? mat.getStrided(1, 0) : 0,
+                    mat.colDim() > 1 ? mat.getStrided(0, 1) : 0
+            };
+            int hash = 31 * (31 * System.identityHashCode(mat.data()) + mat.shape().hashCode()) +
+                    Arrays.hashCode(layout);
+            return new Key(mat.data(), layout, mat.shape(), mat.version(), hash, null);
+        }
+
+        private static Key content(Matrix mat) {
+            Matrix snapshot = new Matrix(mat).freezeInPlace();
+            int hash = 31 * snapshot.shape().hashCode() + Arrays.hashCode(snapshot.data());
+            return new Key(null, null, snapshot.shape(), 0, hash, snapshot);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            if (hash != key.hash || !shape.equals(key.shape)) return false;
+            if (snapshot != null) {
+                return key.snapshot != null && Arrays.equals(snapshot.data(), key.snapshot.data());
+            }
+            return data == key.data && version == key.version && Arrays.equals(layout, key.layout);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
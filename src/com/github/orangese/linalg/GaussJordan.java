@@ -0,0 +1,166 @@
+package com.github.orangese.linalg;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+public class GaussJordan {
+
+    public final static double DEFAULT_TOL = 1e-10;
+    private static final int ROW_BLOCK = 64;
+    private static final long PARALLEL_THRESHOLD = 1 << 16;
+
+    private final Matrix reduced;
+    private final int[] pivotCols;
+    private final double threshold;
+    private Matrix nullSpace;
+
+    public GaussJordan(Matrix mat) {
+        this(mat, DEFAULT_TOL, ForkJoinPool.commonPool());
+    }
+
+    public GaussJordan(Matrix mat, double tol) {
+        this(mat, tol, ForkJoinPool.commonPool());
+    }
+
+    // entries below tol * max|mat| are treated as zero when choosing pivots
+    public GaussJordan(Matrix mat, double tol, ForkJoinPool pool) {
+        if (!(tol >= 0)) {
+            throw new IllegalArgumentException("tol must be a double greater than or equal to 0");
+        }
+        reduced = new Matrix(mat);
+
+        final double[] a = reduced.data();
+        final int m = reduced.rowDim();
+        final int n = reduced.colDim();
+
+        double maxAbs = 0;
+        for (double val : a) {
+            maxAbs = Math.max(maxAbs, Math.abs(val));
+        }
+        threshold = tol * maxAbs;
+
+        int[] pivots = new int[Math.min(m, n)];
+        int rank = 0;
+        for (int j = 0; j < n && rank < m; j++) {
+            int max = rank;
+            double largest = Math.abs(a[rank * n + j]);
+            for (int i = rank + 1; i < m; i++) {
+                final double abs = Math.abs(a[i * n + j]);
+                if (abs > largest) {
+                    largest = abs;
+                    max = i;
+                }
+            }
+            if (largest <= threshold || largest == 0) {
+                continue;
+            }
+
+            final int pivotRow = rank;
+            if (max != pivotRow) {
+                TileKernels.swapRows(a, max * n, a, pivotRow * n, n);
+            }
+            final double inv = 1 / a[pivotRow * n + j];
+            for (int k = j + 1; k < n; k++) {
+                a[pivotRow * n + k] *= inv;
+            }
+            a[pivotRow * n + j] = 1;
+
+            final int col = j;
+            if ((long) m * (n - j) >= PARALLEL_THRESHOLD) {
+                final int blocks = (m + ROW_BLOCK - 1) / ROW_BLOCK;
+                pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(block ->
+                        eliminate(a, n, pivotRow, col, block * ROW_BLOCK, Math.min(m, (block + 1) * ROW_BLOCK))
+                )).join();
+            } else {
+                eliminate(a, n, pivotRow, col, 0, m);
+            }
+
+            pivots[rank++] = j;
+        }
+
+        // whatever is left below the last pivot is under the tolerance by construction
+        Arrays.fill(a, rank * n, m * n, 0);
+        pivotCols = Arrays.copyOf(pivots, rank);
+        reduced.markModified();
+    }
+
+    // subtracts multiples of the pivot row from rows [from, to), touching only columns right of the pivot
+    private static void eliminate(double[] a, int n, int pivotRow, int col, int from, int to) {
+        final int pivotBase = pivotRow * n;
+        for (int i = from; i < to; i++) {
+            if (i == pivotRow) {
+                continue;
+            }
+            final int base = i * n;
+            final double factor = a[base + col];
+            if (factor == 0) {
+                continue;
+            }
+            for (int k = col + 1; k < n; k++) {
+                a[base + k] -= factor * a[pivotBase + k];
+            }
+            a[base + col] = 0;
+        }
+    }
+
+    // a copy, since nullSpace and rank are derived from the reduced matrix
+    public Matrix rref() {
+        return new Matrix(reduced);
+    }
+
+    public int[] pivotCols() {
+        return pivotCols.clone();
+    }
+
+    public int rank() {
+        return pivotCols.length;
+    }
+
+    public double threshold() {
+        return threshold;
+    }
+
+    // one basis vector per free column, stored as the columns of an n x (n - rank) matrix; a copy of the cached one
+    public Matrix nullSpace() {
+        return new Matrix(basisOfNullSpace());
+    }
+
+    private Matrix basisOfNullSpace() {
+        if (nullSpace == null) {
+            final int n = reduced.colDim();
+            final int nullity = n - rank();
+            nullSpace = new Matrix(new Shape(n, Math.max(nullity, 0)));
+            if (nullity == 0) {
+                return nullSpace;
+            }
+
+            boolean[] isPivot = new boolean[n];
+            for (int p : pivotCols) {
+                isPivot[p] = true;
+            }
+
+            int free = 0;
+            for (int f = 0; f < n; f++) {
+                if (isPivot[f]) {
+                    continue;
+                }
+                nullSpace.set(f, free, 1);
+                for (int k = 0; k < pivotCols.length; k++) {
+                    final double coef = reduced.get(k, f);
+                    if (coef != 0) {
+                        nullSpace.set(pivotCols[k], free, -coef);
+                    }
+                }
+                free++;
+            }
+        }
+        return nullSpace;
+    }
+
+    @Override
+    public String toString() {
+        return "RREF: " + rref() + "\nPivot columns: " + Arrays.toString(pivotCols);
+    }
+
+}
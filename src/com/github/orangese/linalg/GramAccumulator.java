@@ -0,0 +1,179 @@
+package com.github.orangese.linalg;
+
+import java.util.Arrays;
+
+public class GramAccumulator {
+
+    private final int dim;
+    private long count;
+    private final double[] mean;
+    // centered co-moment sum((x - mean)(x - mean)^T), upper triangle only
+    private final double[] scatter;
+    private final double[] delta;
+    private double[] centered = new double[0];
+
+    public GramAccumulator(int dim) {
+        if (dim <= 0) {
+            throw new IllegalArgumentException("dim must be an int greater than 0");
+        }
+        this.dim = dim;
+        this.mean = new double[dim];
+        this.scatter = new double[dim * dim];
+        this.delta = new double[dim];
+    }
+
+    // welford update for a single observation
+    public void add(Vector row) {
+        if (row.size() != dim) {
+            throw new IllegalArgumentException("cannot add observation with shape " + row.shape() +
+                    " to accumulator of dimension " + dim);
+        }
+        final double[] x = row.data();
+        count++;
+
+        for (int i = 0; i < dim; i++) {
+            delta[i] = x[i] - mean[i];
+            mean[i] += delta[i] / count;
+        }
+        for (int i = 0; i < dim; i++) {
+            final double after = x[i] - mean[i];
+            final int row0 = i * dim;
+            for (int j = i; j < dim; j++) {
+                scatter[row0 + j] += after * delta[j];
+            }
+        }
+    }
+
+    // each row of rows is one observation; the block is centered on its own mean, then merged in
+    public void add(Matrix rows) {
+        if (rows.colDim() != dim) {
+            throw new IllegalArgumentException("cannot add rows with shape " + rows.shape() +
+                    " to accumulator of dimension " + dim);
+        }
+        final int k = rows.rowDim();
+        if (k == 0) {
+            return;
+        }
+        if (centered.length < k * dim) {
+            centered = new double[k * dim];
+        }
+
+        double[] blockMean = new double[dim];
+        for (int r = 0; r < k; r++) {
+            for (int j = 0; j < dim; j++) {
+                final double val = rows.get(r, j);
+                centered[r * dim + j] = val;
+                blockMean[j] += val;
+            }
+        }
+        for (int j = 0; j < dim; j++) {
+            blockMean[j] /= k;
+        }
+        for (int r = 0; r < k; r++) {
+            for (int j = 0; j < dim; j++) {
+                centered[r * dim + j] -= blockMean[j];
+            }
+        }
+
+        TileKernels.syrkUpperTrans(1, centered, 0, dim, scatter, 0, dim, dim, k);
+        combine(k, blockMean);
+    }
+
+    // chan et al.'s pairwise merge, so accumulators filled on separate threads can be joined at the end
+    public void merge(GramAccumulator o) {
+        if (o.dim != dim) {
+            throw new IllegalArgumentException("cannot merge accumulators of dimensions " + dim + " and " + o.dim);
+        }
+        if (o.count == 0) {
+            return;
+        }
+        for (int i = 0; i < dim; i++) {
+            for (int j = i; j < dim; j++) {
+                scatter[i * dim + j] += o.scatter[i * dim + j];
+            }
+        }
+        combine(o.count, o.mean);
+    }
+
+    // folds the mean of n further observations into ours; their co-moment must already be in scatter
+    private void combine(long n, double[] otherMean) {
+        final long total = count + n;
+        final double weight = (double) count * n / total;
+        for (int i = 0; i < dim; i++) {
+            delta[i] = otherMean[i] - mean[i];
+        }
+        for (int i = 0; i < dim; i++) {
+            final double di = weight * delta[i];
+            if (di != 0) {
+                for (int j = i; j < dim; j++) {
+                    scatter[i * dim + j] += di * delta[j];
+                }
+            }
+            mean[i] += delta[i] * n / total;
+        }
+        count = total;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public int dim() {
+        return dim;
+    }
+
+    public Vector mean() {
+        return new Vector(mean.clone());
+    }
+
+    public Matrix scatter() {
+        return symmetric(scatter, 1, 0);
+    }
+
+    // sample covariance, normalized by n - 1
+    public Matrix covariance() {
+        if (count < 2) {
+            throw new IllegalStateException("covariance needs at least 2 observations, got " + count);
+        }
+        return symmetric(scatter, 1.0 / (count - 1), 0);
+    }
+
+    // the uncentered X^T X, rebuilt as scatter + n * mean * mean^T
+    public Matrix gram() {
+        return symmetric(scatter, 1, count);
+    }
+
+    public CholeskyDecomp gramCholesky() {
+        return new CholeskyDecomp(gram());
+    }
+
+    public CholeskyDecomp covarianceCholesky() {
+        return new CholeskyDecomp(covariance());
+    }
+
+    public void reset() {
+        count = 0;
+        Arrays.fill(mean, 0);
+        Arrays.fill(scatter, 0);
+    }
+
+    private Matrix symmetric(double[] upper, double scale, double meanWeight) {
+        Matrix result = new Matrix(new Shape(dim, dim));
+        final double[] out = result.data();
+        for (int i = 0; i < dim; i++) {
+            for (int j = i; j < dim; j++) {
+                final double val = scale * upper[i * dim + j] + meanWeight * mean[i] * mean[j];
+                out[i * dim + j] = val;
+                out[j * dim + i] = val;
+            }
+        }
+        result.markModified();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Count: " + count + "\nMean: " + mean() + "\nScatter: " + scatter();
+    }
+
+}
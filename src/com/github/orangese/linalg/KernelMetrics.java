@@ -0,0 +1,275 @@
+package com.github.orangese.linalg;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+public final class KernelMetrics {
+
+    public enum Kernel { MATMUL, LU, SOLVE, INV }
+
+    private static volatile boolean enabled = Boolean.getBoolean("linalg.metrics");
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+    private static final Map<Kernel, Counters> COUNTERS = new EnumMap<>(Kernel.class);
+
+    static {
+        for (Kernel kernel : Kernel.values()) {
+            COUNTERS.put(kernel, new Counters());
+        }
+    }
+
+    private KernelMetrics() { }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        KernelMetrics.enabled = enabled;
+    }
+
+    public static Stats stats(Kernel kernel) {
+        return COUNTERS.get(kernel).snapshot(kernel);
+    }
+
+    public static Map<Kernel, Stats> stats() {
+        Map<Kernel, Stats> result = new EnumMap<>(Kernel.class);
+        for (Kernel kernel : Kernel.values()) {
+            result.put(kernel, stats(kernel));
+        }
+        return result;
+    }
+
+    public static void reset() {
+        for (Counters counters : COUNTERS.values()) {
+            counters.reset();
+        }
+    }
+
+    // returns null while metrics are off, so the only cost on the hot path is one volatile read
+    static Probe start(Kernel kernel, int rows, int cols, int inner) {
+        if (!enabled) {
+            return null;
+        }
+        return new Probe(kernel, rows, cols, inner);
+    }
+
+    static void stop(Probe probe, double flops) {
+        if (probe == null) {
+            return;
+        }
+        final long nanos = System.nanoTime() - probe.startNanos;
+        final long bytes = THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes() - probe.startBytes;
+        final long flopCount = (long) flops;
+
+        COUNTERS.get(probe.kernel).record(probe, nanos, bytes, flopCount);
+
+        KernelEvent event = probe.event;
+        event.end();
+        if (event.shouldCommit()) {
+            event.kernel = probe.kernel.name();
+            event.rows = probe.rows;
+            event.cols = probe.cols;
+            event.inner = probe.inner;
+            event.flops = flopCount;
+            event.gflops = gflops(flopCount, nanos);
+            event.bytesAllocated = bytes;
+            event.commit();
+        }
+    }
+
+    private static double gflops(long flops, long nanos) {
+        return nanos == 0 ? 0 : (double) flops / nanos;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads;
+            }
+        }
+        return null;
+    }
+
+    static final class Probe {
+
+        private final Kernel kernel;
+        private final int rows;
+        private final int cols;
+        private final int inner;
+        private final long startBytes;
+        private final long startNanos;
+        private final KernelEvent event;
+
+        private Probe(Kernel kernel, int rows, int cols, int inner) {
+            this.kernel = kernel;
+            this.rows = rows;
+            this.cols = cols;
+            this.inner = inner;
+            this.startBytes = THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+            this.event = new KernelEvent();
+            this.event.begin();
+            this.startNanos = System.nanoTime();
+        }
+
+        private String describe() {
+            switch (kernel) {
+                case MATMUL:
+                    return "(" + rows + ", " + inner + ") x (" + inner + ", " + cols + ")";
+                case LU:
+                    return "(" + rows + ", " + cols + ")";
+                default:
+                    return "(" + rows + ", " + inner + ") \\ (" + inner + ", " + cols + ")";
+            }
+        }
+
+    }
+
+    public static final class Stats {
+
+        private final Kernel kernel;
+        private final long calls;
+        private final long flops;
+        private final long nanos;
+        private final long bytesAllocated;
+        private final double worstGflops;
+        private final String worstShape;
+
+        private Stats(Kernel kernel, long calls, long flops, long nanos, long bytesAllocated,
+                      double worstGflops, String worstShape) {
+            this.kernel = kernel;
+            this.calls = calls;
+            this.flops = flops;
+            this.nanos = nanos;
+            this.bytesAllocated = bytesAllocated;
+            this.worstGflops = worstGflops;
+            this.worstShape = worstShape;
+        }
+
+        public Kernel kernel() {
+            return kernel;
+        }
+
+        public long calls() {
+            return calls;
+        }
+
+        public long flops() {
+            return flops;
+        }
+
+        public long nanos() {
+            return nanos;
+        }
+
+        public long bytesAllocated() {
+            return bytesAllocated;
+        }
+
+        public double gflops() {
+            return KernelMetrics.gflops(flops, nanos);
+        }
+
+        // the slowest single call by achieved throughput, to point at pathological shapes
+        public double worstGflops() {
+            return worstGflops;
+        }
+
+        public String worstShape() {
+            return worstShape;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s: %d calls, %d flops, %.3f ms, %.3f GFLOP/s, %d bytes allocated, worst %s at %.3f GFLOP/s",
+                    kernel, calls, flops, nanos / 1e6, gflops(), bytesAllocated, worstShape, worstGflops
+            );
+        }
+
+    }
+
+    private static final class Counters {
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder flops = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private double worstGflops = Double.POSITIVE_INFINITY;
+        private String worstShape;
+
+        private void record(Probe probe, long nanos, long bytes, long flops) {
+            this.calls.increment();
+            this.flops.add(flops);
+            this.nanos.add(nanos);
+            this.bytes.add(bytes);
+
+            final double gflops = gflops(flops, nanos);
+            if (flops > 0 && gflops < worstGflops) {
+                synchronized (this) {
+                    if (gflops < worstGflops) {
+                        worstGflops = gflops;
+                        worstShape = probe.describe();
+                    }
+                }
+            }
+        }
+
+        private synchronized Stats snapshot(Kernel kernel) {
+            return new Stats(kernel, calls.sum(), flops.sum(), nanos.sum(), bytes.sum(),
+                    worstShape == null ? 0 : worstGflops, worstShape);
+        }
+
+        private synchronized void reset() {
+            calls.reset();
+            flops.reset();
+            nanos.reset();
+            bytes.reset();
+            worstGflops = Double.POSITIVE_INFINITY;
+            worstShape = null;
+        }
+
+    }
+
+    @Name("com.github.orangese.linalg.Kernel")
+    @Label("Linear Algebra Kernel")
+    @Category("Linear Algebra")
+    @Description("A single matmul, LU factorization, solve or inverse")
+    @StackTrace(false)
+    static final class KernelEvent extends Event {
+
+        @Label("Kernel")
+        String kernel;
+
+        @Label("Rows")
+        int rows;
+
+        @Label("Columns")
+        int cols;
+
+        @Label("Inner Dimension")
+        int inner;
+
+        @Label("Floating Point Operations")
+        long flops;
+
+        @Label("GFLOP/s")
+        double gflops;
+
+        @Label("Bytes Allocated")
+        long bytesAllocated;
+
+    }
+
+}
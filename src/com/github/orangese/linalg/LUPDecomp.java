@@ -1,22 +1,47 @@
 package com.github.orangese.linalg;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public class LUPDecomp {
 
     public final static double EPS = 1e-10;
+    public final static double DEFAULT_TOL = EPS;
+    private static final int MAX_ESTIMATOR_STEPS = 5;
     private final Matrix decomp;
+    private final Matrix source;
+    private final long sourceVersion;
+    private final double norm1;
+    private final double threshold;
     private final int[] permArray;
     private final List<Integer> pivotPos;
-    private Matrix lower;
-    private Matrix upper;
-    private Matrix perm;
+    // built on first use. a decomposition handed out by a FactorizationCache is shared by every caller, so its
+    // factors are frozen; any other decomposition returns them mutable, as it always has
+    private volatile boolean shared;
+    private volatile Matrix lower;
+    private volatile Matrix upper;
+    private volatile Matrix perm;
     private int numPermutations;
     private boolean singular;
+    private volatile double conditionEstimate = Double.NaN;
 
     public LUPDecomp(Matrix mat) {
+        this(mat, DEFAULT_TOL);
+    }
+
+    // pivots smaller than tol * max|mat| count as zero, so the test does not depend on how mat is scaled
+    public LUPDecomp(Matrix mat, double tol) {
+        if (!(tol >= 0)) {
+            throw new IllegalArgumentException("tol must be a double greater than or equal to 0");
+        }
+        final KernelMetrics.Probe probe = KernelMetrics.start(KernelMetrics.Kernel.LU, mat.rowDim(), mat.colDim(), 0);
         decomp = new Matrix(mat);
+        source = mat;
+        sourceVersion = mat.version();
+        norm1 = norm1(decomp);
+        threshold = pivotThreshold(decomp, tol);
 
         pivotPos = new ArrayList<>();
         singular = !mat.isSquare();
@@ -42,7 +67,7 @@ public class LUPDecomp {
                 }
             }
 
-            boolean isZero = j < mat.rowDim() && Math.abs(decomp.get(max, j)) < EPS;
+            boolean isZero = j < mat.rowDim() && Math.abs(decomp.get(max, j)) < threshold;
             if (max != j || isZero) {
                 if (isZero) {
                     singular = true;
@@ -64,7 +89,7 @@ public class LUPDecomp {
 
             if (j < mat.rowDim() && j < mat.colDim()) {
                 final double diag = decomp.get(j, j);
-                if (diag != 0) {
+                if (Math.abs(diag) >= threshold) {
                     pivotPos.add(j);
                     for (int i = j + 1; i < decomp.rowDim(); i++) {
                         decomp.set(i, j, decomp.get(i, j) / diag);
@@ -72,6 +97,67 @@ public class LUPDecomp {
                 }
             }
         }
+
+        final double k = Math.min(mat.rowDim(), mat.colDim());
+        KernelMetrics.stop(probe, 2.0 * mat.rowDim() * mat.colDim() * k - (mat.rowDim() + mat.colDim()) * k * k +
+                2.0 * k * k * k / 3);
+    }
+
+    // shares the factorization through the global FactorizationCache when one is enabled
+    public static LUPDecomp of(Matrix mat) {
+        FactorizationCache cache = FactorizationCache.global();
+        return cache == null ? new LUPDecomp(mat) : cache.lu(mat);
+    }
+
+    LUPDecomp(Matrix source, Matrix decomp, int[] permArray, int numPermutations, boolean singular, double tol) {
+        this(source, decomp, permArray, numPermutations, singular, norm1(source), pivotThreshold(source, tol));
+    }
+
+    // source may be null when the original matrix never existed in one place; solveWithReport is then unavailable
+    LUPDecomp(Matrix source, Matrix decomp, int[] permArray, int numPermutations, boolean singular,
+              double norm1, double threshold) {
+        this.decomp = decomp;
+        this.source = source;
+        this.sourceVersion = source == null ? 0 : source.version();
+        this.norm1 = norm1;
+        this.threshold = threshold;
+        this.permArray = permArray;
+        this.numPermutations = numPermutations;
+        this.singular = singular || !decomp.isSquare();
+
+        pivotPos = new ArrayList<>();
+        for (int j = 0; j < Math.min(decomp.rowDim(), decomp.colDim()); j++) {
+            if (Math.abs(decomp.get(j, j)) >= threshold) {
+                pivotPos.add(j);
+            }
+        }
+    }
+
+    // never below the smallest double, so that an exactly zero pivot is always caught
+    static double pivotThreshold(Matrix mat, double tol) {
+        double maxAbs = 0;
+        for (int i = 0; i < mat.rowDim(); i++) {
+            for (int j = 0; j < mat.colDim(); j++) {
+                maxAbs = Math.max(maxAbs, Math.abs(mat.get(i, j)));
+            }
+        }
+        return pivotThreshold(maxAbs, tol);
+    }
+
+    static double pivotThreshold(double maxAbs, double tol) {
+        return Math.max(tol * maxAbs, Double.MIN_VALUE);
+    }
+
+    private static double norm1(Matrix mat) {
+        double norm = 0;
+        for (int j = 0; j < mat.colDim(); j++) {
+            double sum = 0;
+            for (int i = 0; i < mat.rowDim(); i++) {
+                sum += Math.abs(mat.get(i, j));
+            }
+            norm = Math.max(norm, sum);
+        }
+        return norm;
     }
 
     private double backwardSolve(int i, int j) {
@@ -87,39 +173,71 @@ public class LUPDecomp {
         }
     }
 
+    // frozen when this decomposition came from a FactorizationCache; copy with new Matrix(L()) to modify
     public Matrix L() {
-        if (lower == null) {
-            lower = new Matrix(new Shape(decomp.rowDim(), decomp.rowDim()));
-            for (int j = 0; j < lower.colDim(); j++) {
-                for (int i = j; i < Math.min(lower.rowDim(), decomp.colDim()); i++) {
-                    lower.set(i, j, decomp.get(i, j));
+        Matrix result = lower;
+        if (result == null) {
+            synchronized (this) {
+                result = lower;
+                if (result == null) {
+                    result = new Matrix(new Shape(decomp.rowDim(), decomp.rowDim()));
+                    for (int j = 0; j < result.colDim(); j++) {
+                        for (int i = j; i < Math.min(result.rowDim(), decomp.colDim()); i++) {
+                            result.set(i, j, decomp.get(i, j));
+                        }
+                        result.set(j, j, 1);
+                    }
+                    lower = result = publish(result);
                 }
-                lower.set(j, j, 1);
             }
         }
-        return lower;
+        return result;
     }
 
     public Matrix U() {
-        if (upper == null) {
-            upper = new Matrix(decomp.shape());
-            for (int j = 0; j < upper.colDim(); j++) {
-                for (int i = 0; i < Math.min(j + 1, upper.rowDim()); i++) {
-                    upper.set(i, j, decomp.get(i, j));
+        Matrix result = upper;
+        if (result == null) {
+            synchronized (this) {
+                result = upper;
+                if (result == null) {
+                    result = new Matrix(decomp.shape());
+                    for (int j = 0; j < result.colDim(); j++) {
+                        for (int i = 0; i < Math.min(j + 1, result.rowDim()); i++) {
+                            result.set(i, j, decomp.get(i, j));
+                        }
+                    }
+                    upper = result = publish(result);
                 }
             }
         }
-        return upper;
+        return result;
     }
 
     public Matrix P() {
-        if (perm == null) {
-            perm = new Matrix(new Shape(permArray.length, permArray.length));
-            for (int i = 0; i < permArray.length; i++) {
-                perm.set(i, permArray[i], 1);
+        Matrix result = perm;
+        if (result == null) {
+            synchronized (this) {
+                result = perm;
+                if (result == null) {
+                    result = new Matrix(new Shape(permArray.length, permArray.length));
+                    for (int i = 0; i < permArray.length; i++) {
+                        result.set(i, permArray[i], 1);
+                    }
+                    perm = result = publish(result);
+                }
             }
         }
-        return perm;
+        return result;
+    }
+
+    private Matrix publish(Matrix factor) {
+        return shared ? factor.freezeInPlace() : factor;
+    }
+
+    // marks this decomposition as shared before a cache publishes it; must happen before any other thread sees it
+    LUPDecomp share() {
+        shared = true;
+        return this;
     }
 
     public Matrix solve(Matrix b) {
@@ -130,6 +248,8 @@ public class LUPDecomp {
             throw new IllegalArgumentException("equation is not solveable for LHS with shape " + decomp.shape() +
                     " and RHS with shape " + b.shape());
         }
+        final KernelMetrics.Probe probe = KernelMetrics.start(KernelMetrics.Kernel.SOLVE,
+                decomp.rowDim(), b.colDim(), decomp.colDim());
         Matrix x = new Matrix(new Shape(decomp.colDim(), b.colDim()));
 
         for (int i = 0; i < decomp.rowDim(); i++) {
@@ -160,6 +280,7 @@ public class LUPDecomp {
             }
         }
 
+        KernelMetrics.stop(probe, 2.0 * decomp.rowDim() * decomp.rowDim() * b.colDim());
         return x;
     }
 
@@ -167,38 +288,167 @@ public class LUPDecomp {
         return Vector.asVector(solve(Matrix.viewOf(b)));
     }
 
-    public Matrix rref() {
-        final Matrix ref = U();
+    // solves and measures the result against the factored matrix, which must not have changed since
+    public SolveReport solveWithReport(Matrix b) {
+        if (source == null) {
+            throw new IllegalStateException("factored matrix is not available to measure the residual against");
+        }
+        if (source.version() != sourceVersion) {
+            throw new IllegalStateException("matrix was modified after it was factored");
+        }
+        Matrix x = solve(b);
+
+        final int n = decomp.rowDim();
+        double residualNorm = 0;
+        double backwardError = 0;
+        double normInf = 0;
+        for (int i = 0; i < n; i++) {
+            double rowSum = 0;
+            for (int p = 0; p < n; p++) {
+                rowSum += Math.abs(source.get(i, p));
+            }
+            normInf = Math.max(normInf, rowSum);
+        }
+        for (int k = 0; k < b.colDim(); k++) {
+            double rMax = 0;
+            double xMax = 0;
+            double bMax = 0;
+            for (int i = 0; i < n; i++) {
+                double r = b.get(i, k);
+                for (int p = 0; p < n; p++) {
+                    r -= source.get(i, p) * x.get(p, k);
+                }
+                rMax = Math.max(rMax, Math.abs(r));
+                xMax = Math.max(xMax, Math.abs(x.get(i, k)));
+                bMax = Math.max(bMax, Math.abs(b.get(i, k)));
+            }
+            residualNorm = Math.max(residualNorm, rMax);
+            // rigal-gaches: the smallest relative perturbation of A and b for which x is exact
+            final double scale = normInf * xMax + bMax;
+            backwardError = Math.max(backwardError, scale == 0 ? 0 : rMax / scale);
+        }
+        return new SolveReport(x, residualNorm, backwardError, conditionEstimate());
+    }
 
-        int prevPivotPos = -1;
-        for (int j = 0; j < decomp.colDim(); j++) {
-            boolean foundPivot = false;
+    public SolveReport solveWithReport(Vector b) {
+        SolveReport report = solveWithReport(Matrix.viewOf(b));
+        return new SolveReport(Vector.asVector(report.solution), report.residualNorm, report.backwardError,
+                report.conditionEstimate);
+    }
 
-            for (int i = Math.min(j, decomp.rowDim() - 1); i >= 0; i--) {
-                final double currElem = ref.get(i, j);
+    // hager-higham estimate of the 1-norm condition number from a handful of O(n^2) solves, no inverse needed
+    public double conditionEstimate() {
+        if (Double.isNaN(conditionEstimate)) {
+            conditionEstimate = singular ? Double.POSITIVE_INFINITY : norm1 * inverseNorm1Estimate();
+        }
+        return conditionEstimate;
+    }
 
-                if (Math.abs(currElem) >= LUPDecomp.EPS) {
-                    if (!foundPivot && i <= prevPivotPos) {
-                        break;
+    // reciprocal condition number in [0, 1]; values near machine epsilon mean the system is numerically singular
+    public double rcond() {
+        final double cond = conditionEstimate();
+        return cond == 0 || Double.isInfinite(cond) ? 0 : 1 / cond;
+    }
 
-                    } else if (!foundPivot) {
-                        for (int k = 0; k < decomp.colDim(); k++) {
-                            ref.set(i, k, ref.get(i, k) / currElem);
-                        }
-                        prevPivotPos = i;
-                        foundPivot = true;
+    public double pivotThreshold() {
+        return threshold;
+    }
 
-                    } else {
-                        final double factor = ref.get(i, j);
-                        for (int k = j; k < decomp.colDim(); k++) {
-                            ref.set(i, k, ref.get(i, k) - factor * ref.get(prevPivotPos, k));
-                        }
-                    }
+    private double inverseNorm1Estimate() {
+        final int n = decomp.rowDim();
+        if (n == 0) {
+            return 0;
+        }
+        double[] x = new double[n];
+        Arrays.fill(x, 1.0 / n);
+
+        double estimate = 0;
+        int last = -1;
+        for (int step = 0; step < MAX_ESTIMATOR_STEPS; step++) {
+            double[] y = x.clone();
+            solveInPlace(y);
+            estimate = Math.max(estimate, sumAbs(y));
+
+            double[] z = new double[n];
+            for (int i = 0; i < n; i++) {
+                z[i] = y[i] >= 0 ? 1 : -1;
+            }
+            solveTransposeInPlace(z);
+
+            int best = 0;
+            double zx = 0;
+            for (int i = 0; i < n; i++) {
+                if (Math.abs(z[i]) > Math.abs(z[best])) {
+                    best = i;
                 }
+                zx += z[i] * x[i];
+            }
+            if (step > 0 && (Math.abs(z[best]) <= zx || best == last)) {
+                break;
+            }
+            last = best;
+            Arrays.fill(x, 0);
+            x[best] = 1;
+        }
+
+        // higham's extra alternating-sign probe catches matrices that fool the gradient ascent above
+        double[] alt = new double[n];
+        for (int i = 0; i < n; i++) {
+            alt[i] = (i % 2 == 0 ? 1 : -1) * (1 + (n == 1 ? 0 : (double) i / (n - 1)));
+        }
+        solveInPlace(alt);
+        return Math.max(estimate, 2 * sumAbs(alt) / (3 * n));
+    }
+
+    // x <- A^-1 x, using P A = L U
+    private void solveInPlace(double[] x) {
+        final int n = decomp.rowDim();
+        final double[] a = decomp.data();
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            y[i] = x[permArray[i]];
+        }
+        TileKernels.trsmLowerUnit(a, 0, n, y, 0, 1, n, 1);
+        TileKernels.trsmUpper(a, 0, n, y, 0, 1, n, 1);
+        System.arraycopy(y, 0, x, 0, n);
+    }
+
+    // x <- A^-T x, using A^T = U^T L^T P
+    private void solveTransposeInPlace(double[] x) {
+        final int n = decomp.rowDim();
+        final double[] a = decomp.data();
+        for (int i = 0; i < n; i++) {
+            double sum = x[i];
+            for (int p = 0; p < i; p++) {
+                sum -= a[p * n + i] * x[p];
+            }
+            x[i] = sum / a[i * n + i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = x[i];
+            for (int p = i + 1; p < n; p++) {
+                sum -= a[p * n + i] * x[p];
             }
+            x[i] = sum;
+        }
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            y[permArray[i]] = x[i];
+        }
+        System.arraycopy(y, 0, x, 0, n);
+    }
+
+    private static double sumAbs(double[] x) {
+        double sum = 0;
+        for (double val : x) {
+            sum += Math.abs(val);
         }
+        return sum;
+    }
 
-        return ref;
+    public Matrix rref() {
+        // U is row equivalent to the original matrix, so it reduces to the same echelon form
+        return new GaussJordan(U()).rref();
     }
 
     public int rank() {
@@ -206,23 +456,33 @@ public class LUPDecomp {
     }
 
     public List<Integer> getPivotPos() {
-        return pivotPos;
+        return shared ? Collections.unmodifiableList(pivotPos) : pivotPos;
     }
 
     public Matrix inv() {
-        return solve(Matrix.eye(decomp.shape()));
+        final KernelMetrics.Probe probe = KernelMetrics.start(KernelMetrics.Kernel.INV,
+                decomp.rowDim(), decomp.colDim(), decomp.colDim());
+        Matrix inverse = solve(Matrix.eye(decomp.shape()));
+        KernelMetrics.stop(probe, 2.0 * decomp.rowDim() * decomp.rowDim() * decomp.colDim());
+        return inverse;
     }
 
     public Scalar det() {
+        return new Scalar(detValue());
+    }
+
+    public double detValue() {
         if (!decomp.isSquare()) {
             throw new UnsupportedOperationException("cannot compute determinant for nonsquare matrix");
         }
         if (isSingular()) {
-            return new Scalar(0);
-        } else {
-            double coef = Math.pow(-1, numPermutations);
-            return U().trace().mul(coef);
+            return 0;
+        }
+        double det = numPermutations % 2 == 0 ? 1 : -1;
+        for (int i = 0; i < decomp.rowDim(); i++) {
+            det *= decomp.get(i, i);
         }
+        return det;
     }
 
     public boolean isSingular() {
@@ -234,4 +494,48 @@ public class LUPDecomp {
         return "L: " + L() + "\nU: " + U() + "\nP: " + P();
     }
 
+    public static final class SolveReport {
+
+        private final Matrix solution;
+        private final double residualNorm;
+        private final double backwardError;
+        private final double conditionEstimate;
+
+        private SolveReport(Matrix solution, double residualNorm, double backwardError, double conditionEstimate) {
+            this.solution = solution;
+            this.residualNorm = residualNorm;
+            this.backwardError = backwardError;
+            this.conditionEstimate = conditionEstimate;
+        }
+
+        public Matrix solution() {
+            return solution;
+        }
+
+        // max-norm of b - A x, taken over all right-hand sides
+        public double residualNorm() {
+            return residualNorm;
+        }
+
+        public double backwardError() {
+            return backwardError;
+        }
+
+        public double conditionEstimate() {
+            return conditionEstimate;
+        }
+
+        // first-order bound on the relative forward error, up to a factor of n from mixing norms
+        public double forwardErrorBound() {
+            return conditionEstimate * backwardError;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("residual %.3e, backward error %.3e, condition estimate %.3e",
+                    residualNorm, backwardError, conditionEstimate);
+        }
+
+    }
+
 }
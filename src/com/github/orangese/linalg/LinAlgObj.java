@@ -37,7 +37,13 @@ public abstract class LinAlgObj {
     }
 
     public int size() {
-        return shape.size();
+        return storageSize(shape);
+    }
+
+    // matrix shapes use 0 for an absent axis rather than an empty one, so (0, 0) is a scalar and every matrix
+    // object holds at least one element
+    static int storageSize(Shape shape) {
+        return Math.max(shape.rowDim() * shape.colDim(), 1);
     }
 
     protected abstract void checkAddShapes(LinAlgObj o, String op);
@@ -0,0 +1,60 @@
+package com.github.orangese.linalg;
+
+// ranks that are threads of one JVM; messages are handed over by reference, so nothing is copied
+public class LoopbackTransport implements Transport {
+
+    private final int rank;
+    private final Mailbox[] mailboxes;
+
+    private LoopbackTransport(int rank, Mailbox[] mailboxes) {
+        this.rank = rank;
+        this.mailboxes = mailboxes;
+    }
+
+    public static LoopbackTransport[] create(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be an int greater than 0");
+        }
+        Mailbox[] mailboxes = new Mailbox[size];
+        for (int r = 0; r < size; r++) {
+            mailboxes[r] = new Mailbox();
+        }
+        LoopbackTransport[] transports = new LoopbackTransport[size];
+        for (int r = 0; r < size; r++) {
+            transports[r] = new LoopbackTransport(r, mailboxes);
+        }
+        return transports;
+    }
+
+    @Override
+    public int rank() {
+        return rank;
+    }
+
+    @Override
+    public int size() {
+        return mailboxes.length;
+    }
+
+    @Override
+    public void send(int dest, int tag, double[] data) {
+        checkRank(dest);
+        mailboxes[dest].put(rank, tag, data);
+    }
+
+    @Override
+    public double[] receive(int source, int tag) {
+        checkRank(source);
+        return mailboxes[rank].take(source, tag);
+    }
+
+    @Override
+    public void close() { }
+
+    private void checkRank(int other) {
+        if (other < 0 || other >= mailboxes.length) {
+            throw new IllegalArgumentException("rank " + other + " out of range for " + mailboxes.length + " ranks");
+        }
+    }
+
+}
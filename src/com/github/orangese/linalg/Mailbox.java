@@ -0,0 +1,47 @@
+package com.github.orangese.linalg;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// incoming messages of one rank, queued per (source, tag)
+final class Mailbox {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final ConcurrentHashMap<Long, BlockingQueue<double[]>> queues = new ConcurrentHashMap<>();
+    private volatile RuntimeException failure;
+
+    void put(int source, int tag, double[] data) {
+        queue(source, tag).add(data);
+    }
+
+    double[] take(int source, int tag) {
+        BlockingQueue<double[]> queue = queue(source, tag);
+        try {
+            while (true) {
+                double[] data = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (data != null) {
+                    return data;
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for message from rank " + source, exc);
+        }
+    }
+
+    // wakes every waiting receiver with exc once its queue has drained
+    void fail(RuntimeException exc) {
+        failure = exc;
+    }
+
+    private BlockingQueue<double[]> queue(int source, int tag) {
+        return queues.computeIfAbsent(((long) source << 32) | (tag & 0xffffffffL), k -> new LinkedBlockingQueue<>());
+    }
+
+}
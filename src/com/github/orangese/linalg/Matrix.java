@@ -6,11 +6,13 @@ import com.github.orangese.linalg.LUPDecomp;
 
 public class Matrix extends LinAlgObj {
 
-    private static int PRINT_PRECISION = 3;
+    private static volatile int PRINT_PRECISION = 3;
     private int[] strides;
+    private Version version = new Version();
 
     public Matrix(Shape shape) {
-        setData(new double[shape.size()]);
+        checkAxes(shape);
+        setData(new double[storageSize(shape)]);
         setShape(shape);
         calcStrides();
     }
@@ -29,6 +31,7 @@ public class Matrix extends LinAlgObj {
 
     public Matrix(double[] data, Shape shape) {
         this(data);
+        checkAxes(shape);
         setShape(shape);
         calcStrides();
     }
@@ -52,10 +55,66 @@ public class Matrix extends LinAlgObj {
     }
 
     public Matrix(Matrix o) {
-        setData(new double[o.data().length]);
-        System.arraycopy(o.data(), 0, data(), 0, o.data().length);
-        setShape(new Shape(o.shape()));
-        strides = o.strides;
+        this(new Shape(o.shape()));
+        if (Arrays.equals(strides, o.strides)) {
+            System.arraycopy(o.data(), 0, data(), 0, Math.min(data().length, o.data().length));
+        } else {
+            // strided views such as transposes are copied into a fresh row-major layout
+            for (int i = 0; i < rowDim(); i++) {
+                for (int j = 0; j < colDim(); j++) {
+                    set(i, j, o.get(i, j));
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void setData(double[] data) {
+        super.setData(data);
+        markModified();
+    }
+
+    // views share their version with the matrix they look into, so a write through either bumps both
+    public long version() {
+        return version.stamp;
+    }
+
+    public void markModified() {
+        checkMutable();
+        version.stamp++;
+    }
+
+    // views also share frozenness, since freezing is a property of the backing array
+    void shareVersion(Matrix o) {
+        version = o.version;
+    }
+
+    public boolean isFrozen() {
+        return version.frozen;
+    }
+
+    // returns an immutable copy that can be shared between threads without locking; new Matrix(frozen) thaws it
+    public Matrix freeze() {
+        return isFrozen() ? this : new Matrix(this).freezeInPlace();
+    }
+
+    // only for matrices whose array nobody else can reach, such as a freshly made copy
+    Matrix freezeInPlace() {
+        version.frozen = true;
+        return this;
+    }
+
+    void checkMutable() {
+        if (version.frozen) {
+            throw new UnsupportedOperationException("cannot modify frozen matrix");
+        }
+    }
+
+    // n-d shapes belong to Tensor
+    private static void checkAxes(Shape shape) {
+        if (shape.numAxes() != 2) {
+            throw new IllegalArgumentException("cannot instantiate matrix with shape " + shape + "; use Tensor");
+        }
     }
 
     private void calcStrides() {
@@ -92,7 +151,9 @@ public class Matrix extends LinAlgObj {
                     "cannot copy row with length " + colDim() + " into array with length" + dest.size()
             );
         }
+        dest.checkMutable();
         System.arraycopy(data(), getStrided(row, 0), dest.data(), 0, dest.size());
+        dest.markModified();
     }
 
     public void copyCol(int col, Vector dest) {
@@ -119,7 +180,9 @@ public class Matrix extends LinAlgObj {
     }
 
     public void set(int row, int col, double newVal) {
+        checkMutable();
         data()[getStrided(row, col)] = newVal;
+        markModified();
     }
 
     public boolean isSquare() {
@@ -144,7 +207,24 @@ public class Matrix extends LinAlgObj {
         }
     }
 
+    // true when element (i, j) lives at data()[i * colDim() + j], so kernels can index the array directly
+    boolean isRowMajor() {
+        return data().length == size() && (rowDim() <= 1 || strides[0] == colDim()) &&
+                (colDim() <= 1 || strides[1] == 1);
+    }
+
+    // the backing array itself when it is already row-major, otherwise a row-major copy
+    double[] rowMajorData() {
+        return isRowMajor() ? data() : new Matrix(this).data();
+    }
+
     private void imatMul2Axis(Matrix mat, Matrix newMatrix) {
+        if (newMatrix.isRowMajor()) {
+            TileKernels.gemmBlocked(rowMajorData(), 0, colDim(), mat.rowMajorData(), 0, mat.colDim(),
+                    newMatrix.data(), 0, mat.colDim(), rowDim(), mat.colDim(), colDim());
+            newMatrix.markModified();
+            return;
+        }
         for (int i = 0; i < rowDim(); i++) {
             for (int j = 0; j < mat.colDim(); j++) {
                 for (int k = 0; k <  colDim(); k++) {
@@ -183,8 +263,17 @@ public class Matrix extends LinAlgObj {
             // scalar multiplication is communative
             return o.mul(this);
         } else {
-            Matrix newMatrix = new Matrix(new double[rowDim()][o.colDim()]);
-            imatMul2Axis(o, newMatrix);
+            final KernelMetrics.Probe probe = KernelMetrics.start(KernelMetrics.Kernel.MATMUL,
+                    rowDim(), o.colDim(), colDim());
+            Matrix newMatrix;
+            final StrassenMultiplier strassen = StrassenMultiplier.global();
+            if (strassen != null && strassen.shouldUse(rowDim(), colDim(), o.colDim())) {
+                newMatrix = strassen.mul(this, o);
+            } else {
+                newMatrix = new Matrix(new double[rowDim()][o.colDim()]);
+                imatMul2Axis(o, newMatrix);
+            }
+            KernelMetrics.stop(probe, 2.0 * rowDim() * o.colDim() * colDim());
             return newMatrix;
         }
     }
@@ -200,31 +289,39 @@ public class Matrix extends LinAlgObj {
     @Override
     public void iadd(LinAlgObj o) {
         checkAddShapes(o, "matrix addition");
+        checkMutable();
         for (int i = 0; i < data().length; i++) {
             data()[i] += o.data()[i];
         }
+        markModified();
     }
 
     @Override
     public void isubtract(LinAlgObj o) {
         checkAddShapes(o, "matrix subtraction");
+        checkMutable();
         for (int i = 0; i < data().length; i++) {
             data()[i] -= o.data()[i];
         }
+        markModified();
     }
 
     @Override
     public void imul(LinAlgObj o) {
         checkAddShapes(o, "matrix multiplication");
+        checkMutable();
         Matrix tmp = viewOf(this);
         setData(new double[data().length]);
-        tmp.imatMul2Axis((Matrix) o, this);
+        // squaring in place must read the old values, which only tmp still sees
+        tmp.imatMul2Axis(o == this ? tmp : (Matrix) o, this);
     }
 
     @Override
     public void ipow(Scalar scalar) {
         checkAddShapes(this, "matrix power");
+        checkMutable();
         imatPow2Axis(scalar, this);
+        markModified();
     }
 
     public Matrix transpose() {
@@ -237,25 +334,37 @@ public class Matrix extends LinAlgObj {
     }
 
     public Scalar trace() {
+        return new Scalar(traceValue());
+    }
+
+    public double traceValue() {
         if (!isSquare()) {
             throw new UnsupportedOperationException("cannot compute trace for nonsquare matrix");
         }
-        double trace = 1;
+        double trace = 0;
         for (int i = 0; i < rowDim(); i++) {
-            trace *= get(i, i);
+            trace += get(i, i);
         }
-        return new Scalar(trace);
+        return trace;
     }
 
     public Scalar item() {
+        return new Scalar(itemValue());
+    }
+
+    public double itemValue() {
         if (!shape().equals(1, 1)) {
             throw new IllegalArgumentException("cannot instantiate Scalar from LinAlgObj with shape " + shape());
         }
-        return new Scalar(get(0, 0));
+        return get(0, 0);
     }
 
     public Scalar det() {
-	return (new LUPDecomp(this)).det();
+        return LUPDecomp.of(this).det();
+    }
+
+    public double detValue() {
+        return LUPDecomp.of(this).detValue();
     }
 
     public Subspace colSpace() {
@@ -266,6 +375,19 @@ public class Matrix extends LinAlgObj {
         return transpose().colSpace();
     }
 
+    public Matrix rref() {
+        return new GaussJordan(this).rref();
+    }
+
+    public int rank() {
+        return new GaussJordan(this).rank();
+    }
+
+    public Subspace nullSpace() {
+        GaussJordan elimination = new GaussJordan(this);
+        return elimination.rank() == colDim() ? new Subspace(colDim()) : new Subspace(elimination.nullSpace());
+    }
+
     public static int getPrintPrecision() {
         return PRINT_PRECISION;
     }
@@ -282,7 +404,7 @@ public class Matrix extends LinAlgObj {
             throw new IllegalArgumentException("cannot instantiate identity matrix with number of axis != 2");
         }
 
-        double[] data = new double[shape.size()];
+        double[] data = new double[storageSize(shape)];
         int dataOffset = 0;
 
         for (int i = 0; i < data.length; i++) {
@@ -299,22 +421,42 @@ public class Matrix extends LinAlgObj {
         return eye(shape, 0);
     }
 
+    static Matrix wrap(double[] data, Shape shape) {
+        Matrix mat = new Matrix(new double[0]);
+
+        mat.setData(data);
+        mat.setShape(shape);
+        mat.calcStrides();
+
+        return mat;
+    }
+
     public static Matrix viewOf(Matrix o) {
         Matrix view = new Matrix(o.shape());
 
         view.setData(o.data());
         view.setShape(o.shape());
         view.strides = o.strides;
+        view.shareVersion(o);
 
         return view;
     }
 
     @Override
     public String toString() {
-        StringBuilder result = new StringBuilder("[");
+        return toString(PRINT_PRECISION);
+    }
+
+    public String toString(int precision) {
+        if (precision <= 0) {
+            throw new IllegalArgumentException("precision must be an int greater than 0");
+        }
+        StringBuilder result = new StringBuilder(size() * (precision + 6) + 2).append("[");
         for (int i = 0; i < rowDim(); i++) {
             for (int j = 0; j < colDim(); j++) {
-                result.append(" ").append(String.format("%." + PRINT_PRECISION + "f", get(i, j))).append(" ");
+                result.append(" ");
+                MatrixIO.appendFixed(result, get(i, j), precision);
+                result.append(" ");
             }
             result.append("\n ");
         }
@@ -322,4 +464,11 @@ public class Matrix extends LinAlgObj {
         return result.append("]").toString();
     }
 
+    private static final class Version {
+
+        private long stamp;
+        private boolean frozen;
+
+    }
+
 }
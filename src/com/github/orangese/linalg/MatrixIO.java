@@ -0,0 +1,290 @@
+package com.github.orangese.linalg;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public final class MatrixIO {
+
+    public static final int ROUND_TRIP = -1;
+
+    private static final int MAX_FAST_PRECISION = 15;
+    private static final double MAX_FAST_SCALED = 0x1p52;
+    private static final double TIE_TOLERANCE = 0x1p-48;
+    private static final long[] LONG_POW10 = new long[19];
+    private static final double[] DOUBLE_POW10 = new double[23];
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    static {
+        LONG_POW10[0] = 1;
+        for (int i = 1; i < LONG_POW10.length; i++) {
+            LONG_POW10[i] = LONG_POW10[i - 1] * 10;
+        }
+        DOUBLE_POW10[0] = 1;
+        for (int i = 1; i < DOUBLE_POW10.length; i++) {
+            DOUBLE_POW10[i] = DOUBLE_POW10[i - 1] * 10;
+        }
+    }
+
+    private MatrixIO() { }
+
+    public static void writeCsv(Matrix mat, Appendable out) throws IOException {
+        write(mat, out, ',', ROUND_TRIP);
+    }
+
+    public static void writeTsv(Matrix mat, Appendable out) throws IOException {
+        write(mat, out, '\t', ROUND_TRIP);
+    }
+
+    public static void write(Matrix mat, Appendable out, char delimiter, int precision) throws IOException {
+        checkPrecision(precision);
+        StringBuilder row = new StringBuilder(mat.colDim() * 12);
+        for (int i = 0; i < mat.rowDim(); i++) {
+            row.setLength(0);
+            appendRow(mat, i, row, delimiter, precision);
+            out.append(row);
+        }
+    }
+
+    public static void write(Matrix mat, WritableByteChannel out, char delimiter, int precision)
+            throws IOException {
+        checkPrecision(precision);
+        StringBuilder row = new StringBuilder(mat.colDim() * 12);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        for (int i = 0; i < mat.rowDim(); i++) {
+            row.setLength(0);
+            appendRow(mat, i, row, delimiter, precision);
+            for (int k = 0; k < row.length(); k++) {
+                if (!buffer.hasRemaining()) {
+                    drain(buffer, out);
+                }
+                // every character produced by the formatter is ascii
+                buffer.put((byte) row.charAt(k));
+            }
+        }
+        drain(buffer, out);
+    }
+
+    public static Matrix readCsv(Reader in) throws IOException {
+        return read(in, ',');
+    }
+
+    public static Matrix readTsv(Reader in) throws IOException {
+        return read(in, '\t');
+    }
+
+    public static Matrix read(ReadableByteChannel in, char delimiter) throws IOException {
+        return read(Channels.newReader(in, StandardCharsets.UTF_8), delimiter);
+    }
+
+    public static Matrix read(Reader in, char delimiter) throws IOException {
+        char[] chunk = new char[BUFFER_SIZE];
+        char[] token = new char[64];
+        double[] values = new double[1024];
+
+        int size = 0;
+        int tokenLength = 0;
+        int rows = 0;
+        int cols = -1;
+        int rowStart = 0;
+        boolean rowHasContent = false;
+        boolean tokenEnded = false;
+        boolean eof = false;
+
+        while (!eof) {
+            int read = in.read(chunk);
+            eof = read < 0;
+            int end = eof ? 1 : read;
+
+            for (int pos = 0; pos < end; pos++) {
+                // treat end of input as a final newline so that the last row is flushed
+                char c = eof ? '\n' : chunk[pos];
+
+                if (c == delimiter || c == '\n') {
+                    if (tokenLength > 0 || c == delimiter || rowHasContent) {
+                        if (size == values.length) {
+                            values = Arrays.copyOf(values, size * 2);
+                        }
+                        values[size++] = parseDouble(token, tokenLength, rows);
+                        tokenLength = 0;
+                        rowHasContent = c == delimiter;
+                    }
+                    tokenEnded = false;
+                    if (c == '\n' && size > rowStart) {
+                        int rowLength = size - rowStart;
+                        if (cols < 0) {
+                            cols = rowLength;
+                        } else if (rowLength != cols) {
+                            throw new IllegalArgumentException(String.format(
+                                    "dim %d along axis %d != dim %d along axis 0", rowLength, rows, cols
+                            ));
+                        }
+                        rows++;
+                        rowStart = size;
+                    }
+                } else if (c == ' ' || c == '\r' || c == '\t') {
+                    // whitespace may pad a value but never split one, so "1 2" is an error rather than 12
+                    tokenEnded = tokenLength > 0;
+                } else {
+                    if (tokenEnded) {
+                        throw new IllegalArgumentException(
+                                "cannot parse '" + new String(token, 0, tokenLength) + " " + c + "...' on line " +
+                                        (rows + 1) + " as a double"
+                        );
+                    }
+                    if (tokenLength == token.length) {
+                        token = Arrays.copyOf(token, tokenLength * 2);
+                    }
+                    token[tokenLength++] = c;
+                }
+            }
+        }
+
+        if (rows == 0) {
+            throw new IllegalArgumentException("cannot read matrix from empty input");
+        }
+        return Matrix.wrap(size == values.length ? values : Arrays.copyOf(values, size), new Shape(rows, cols));
+    }
+
+    static void appendFixed(StringBuilder sb, double val, int precision) {
+        if (Double.isNaN(val) || Double.isInfinite(val)) {
+            sb.append(val);
+            return;
+        }
+
+        // String.format keeps the sign of negative values that round to zero, so we do too
+        boolean negative = val < 0 || (val == 0 && 1 / val < 0);
+        double abs = Math.abs(val);
+        double scaled = precision <= MAX_FAST_PRECISION ? abs * DOUBLE_POW10[precision] : Double.POSITIVE_INFINITY;
+        double frac = scaled - Math.floor(scaled);
+
+        if (negative) {
+            sb.append('-');
+        }
+        if (scaled >= MAX_FAST_SCALED || Math.abs(frac - 0.5) < Math.max(1e-6, scaled * TIE_TOLERANCE)) {
+            // near ties and huge values go through the same decimal rounding that String.format uses
+            sb.append(BigDecimal.valueOf(abs).setScale(precision, RoundingMode.HALF_UP).toPlainString());
+            return;
+        }
+
+        long rounded = Math.round(scaled);
+        long pow = LONG_POW10[precision];
+        sb.append(rounded / pow);
+        if (precision > 0) {
+            sb.append('.');
+            long fraction = rounded % pow;
+            for (long digit = pow / 10; digit > 1 && fraction < digit; digit /= 10) {
+                sb.append('0');
+            }
+            sb.append(fraction);
+        }
+    }
+
+    private static void appendRow(Matrix mat, int row, StringBuilder sb, char delimiter, int precision) {
+        for (int j = 0; j < mat.colDim(); j++) {
+            if (j > 0) {
+                sb.append(delimiter);
+            }
+            if (precision == ROUND_TRIP) {
+                sb.append(mat.get(row, j));
+            } else {
+                appendFixed(sb, mat.get(row, j), precision);
+            }
+        }
+        sb.append('\n');
+    }
+
+    private static double parseDouble(char[] token, int length, int row) {
+        int pos = 0;
+        boolean negative = false;
+        if (pos < length && (token[pos] == '-' || token[pos] == '+')) {
+            negative = token[pos++] == '-';
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+
+        for (; pos < length; pos++) {
+            char c = token[pos];
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                if (mantissa == 0 && c == '0') {
+                    if (seenPoint) {
+                        exponent--;
+                    }
+                } else if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                    if (seenPoint) {
+                        exponent--;
+                    }
+                } else {
+                    return slowParse(token, length, row);
+                }
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else if ((c == 'e' || c == 'E') && seenDigit) {
+                int exp = 0;
+                boolean negativeExp = false;
+                pos++;
+                if (pos < length && (token[pos] == '-' || token[pos] == '+')) {
+                    negativeExp = token[pos++] == '-';
+                }
+                if (pos == length || length - pos > 4) {
+                    return slowParse(token, length, row);
+                }
+                for (; pos < length; pos++) {
+                    if (token[pos] < '0' || token[pos] > '9') {
+                        return slowParse(token, length, row);
+                    }
+                    exp = exp * 10 + (token[pos] - '0');
+                }
+                exponent += negativeExp ? -exp : exp;
+            } else {
+                return slowParse(token, length, row);
+            }
+        }
+
+        // both the mantissa and the power of ten are exact doubles here, so one rounding is correctly rounded
+        if (!seenDigit || mantissa >= (1L << 53) || exponent < -22 || exponent > 22) {
+            return slowParse(token, length, row);
+        }
+        double val = exponent < 0 ? mantissa / DOUBLE_POW10[-exponent] : mantissa * DOUBLE_POW10[exponent];
+        return negative ? -val : val;
+    }
+
+    private static double slowParse(char[] token, int length, int row) {
+        try {
+            return Double.parseDouble(new String(token, 0, length));
+        } catch (NumberFormatException exc) {
+            throw new IllegalArgumentException(
+                    "cannot parse '" + new String(token, 0, length) + "' on line " + (row + 1) + " as a double"
+            );
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, WritableByteChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void checkPrecision(int precision) {
+        if (precision < 0 && precision != ROUND_TRIP) {
+            throw new IllegalArgumentException("precision must be an int greater than or equal to 0");
+        }
+    }
+
+}
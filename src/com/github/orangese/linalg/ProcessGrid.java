@@ -0,0 +1,86 @@
+package com.github.orangese.linalg;
+
+import java.util.Objects;
+
+// the ranks of a transport arranged as a rows x cols grid, rank = row * cols + col
+public class ProcessGrid {
+
+    private static final int TAG_REDUCE = 1;
+    private static final int TAG_REDUCE_RESULT = 2;
+
+    private final Transport transport;
+    private final int rows;
+    private final int cols;
+
+    public ProcessGrid(Transport transport, int rows, int cols) {
+        this.transport = Objects.requireNonNull(transport);
+        if (rows <= 0 || cols <= 0 || rows * cols != transport.size()) {
+            throw new IllegalArgumentException("cannot arrange " + transport.size() + " ranks in a " +
+                    rows + " x " + cols + " grid");
+        }
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    // the most nearly square grid, which minimizes the volume SUMMA and LU broadcast per step
+    public static ProcessGrid square(Transport transport) {
+        int rows = (int) Math.sqrt(transport.size());
+        while (transport.size() % rows != 0) {
+            rows--;
+        }
+        return new ProcessGrid(transport, rows, transport.size() / rows);
+    }
+
+    public Transport transport() {
+        return transport;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public int myRow() {
+        return transport.rank() / cols;
+    }
+
+    public int myCol() {
+        return transport.rank() % cols;
+    }
+
+    public int rank(int row, int col) {
+        return row * cols + col;
+    }
+
+    // block-cyclic ownership: block (i, j) lives on grid position (i mod rows, j mod cols)
+    public int owner(int blockRow, int blockCol) {
+        return rank(blockRow % rows, blockCol % cols);
+    }
+
+    // elementwise max or sum of values across all ranks, returned on every rank; every rank must call this
+    double[] allReduce(double[] values, boolean max) {
+        transport.send(0, TAG_REDUCE, values.clone());
+        if (transport.rank() == 0) {
+            double[] result = transport.receive(0, TAG_REDUCE);
+            for (int r = 1; r < transport.size(); r++) {
+                double[] other = transport.receive(r, TAG_REDUCE);
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = max ? Math.max(result[i], other[i]) : result[i] + other[i];
+                }
+            }
+            for (int r = 0; r < transport.size(); r++) {
+                transport.send(r, TAG_REDUCE_RESULT, result.clone());
+            }
+        }
+        return transport.receive(0, TAG_REDUCE_RESULT);
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessGrid(" + rows + " x " + cols + ")";
+    }
+
+}
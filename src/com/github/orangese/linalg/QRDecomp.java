@@ -0,0 +1,114 @@
+package com.github.orangese.linalg;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class QRDecomp {
+
+    private final Matrix decomp;
+    private final double[] tau;
+    private final double threshold;
+    private Matrix q;
+    private Matrix r;
+
+    public QRDecomp(Matrix mat) {
+        this(mat, LUPDecomp.DEFAULT_TOL);
+    }
+
+    // diagonal entries of R smaller than tol * max|R_jj| count as zero, as with LUPDecomp's pivots
+    public QRDecomp(Matrix mat, double tol) {
+        this(mat, tol, TiledFactorizations.DEFAULT_TILE_SIZE, ForkJoinPool.commonPool());
+    }
+
+    QRDecomp(Matrix mat, int tileSize, ForkJoinPool pool) {
+        this(mat, LUPDecomp.DEFAULT_TOL, tileSize, pool);
+    }
+
+    QRDecomp(Matrix mat, double tol, int tileSize, ForkJoinPool pool) {
+        if (!(tol >= 0)) {
+            throw new IllegalArgumentException("tol must be a double greater than or equal to 0");
+        }
+        if (mat.rowDim() < mat.colDim()) {
+            throw new IllegalArgumentException("cannot compute QR decomposition for matrix with shape " +
+                    mat.shape() + " that has more columns than rows");
+        }
+        decomp = new Matrix(mat);
+        tau = new double[mat.colDim()];
+        TiledFactorizations.factorQR(decomp.data(), decomp.rowDim(), decomp.colDim(), tau, tileSize, pool);
+
+        final int n = decomp.colDim();
+        double maxDiag = 0;
+        for (int j = 0; j < n; j++) {
+            maxDiag = Math.max(maxDiag, Math.abs(decomp.data()[j * n + j]));
+        }
+        threshold = LUPDecomp.pivotThreshold(maxDiag, tol);
+    }
+
+    // thin Q with the same shape as the factored matrix
+    public Matrix Q() {
+        if (q == null) {
+            final int m = decomp.rowDim();
+            final int n = decomp.colDim();
+            q = new Matrix(new Shape(m, n));
+            for (int j = 0; j < n; j++) {
+                q.set(j, j, 1);
+            }
+            for (int j = n - 1; j >= 0; j--) {
+                TileKernels.applyReflector(decomp.data(), j * n + j, n, m - j, tau[j], q.data(), j * n, n, n);
+            }
+        }
+        return q;
+    }
+
+    public Matrix R() {
+        if (r == null) {
+            r = new Matrix(new Shape(decomp.colDim(), decomp.colDim()));
+            for (int i = 0; i < r.rowDim(); i++) {
+                for (int j = i; j < r.colDim(); j++) {
+                    r.set(i, j, decomp.get(i, j));
+                }
+            }
+        }
+        return r;
+    }
+
+    // least squares solution of min ||Ax - b|| when A has full column rank
+    public Matrix solve(Matrix b) {
+        if (decomp.rowDim() != b.rowDim()) {
+            throw new IllegalArgumentException("equation is not solveable for LHS with shape " + decomp.shape() +
+                    " and RHS with shape " + b.shape());
+        }
+        final int m = decomp.rowDim();
+        final int n = decomp.colDim();
+        final int nrhs = b.colDim();
+        final double[] a = decomp.data();
+
+        Matrix y = new Matrix(b);
+        for (int j = 0; j < n; j++) {
+            TileKernels.applyReflector(a, j * n + j, n, m - j, tau[j], y.data(), j * nrhs, nrhs, nrhs);
+        }
+
+        for (int j = 0; j < n; j++) {
+            if (Math.abs(a[j * n + j]) < threshold) {
+                throw new ArithmeticException("matrix is singular");
+            }
+        }
+        Matrix x = new Matrix(new Shape(n, nrhs));
+        System.arraycopy(y.data(), 0, x.data(), 0, n * nrhs);
+        TileKernels.trsmUpper(a, 0, n, x.data(), 0, nrhs, n, nrhs);
+        return x;
+    }
+
+    public double threshold() {
+        return threshold;
+    }
+
+    public Vector solve(Vector b) {
+        return Vector.asVector(solve(Matrix.viewOf(b)));
+    }
+
+    @Override
+    public String toString() {
+        return "Q: " + Q() + "\nR: " + R();
+    }
+
+}
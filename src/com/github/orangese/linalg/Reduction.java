@@ -0,0 +1,214 @@
+package com.github.orangese.linalg;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// sums and dot products with a selectable evaluation order. FAST is a single left-to-right accumulator, as every
+// kernel has always used. the other modes cut the input into fixed LEAF-element leaves and combine the leaf
+// partials pairwise in a tree that depends only on the length, so the result is bit-identical for any pool size
+// or schedule and the leaves can be summed in parallel. COMPENSATED also carries the rounding error of every
+// addition (neumaier leaves, twoSum combines, fma products), giving roughly twice the working precision.
+// modes only fix the order of a reduction, not the algorithm: a rerun must use the same StrassenMultiplier and
+// tile size settings to be bit-identical
+public final class Reduction {
+
+    public enum Mode { FAST, REPRODUCIBLE, COMPENSATED }
+
+    static final int LEAF = 1024;
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private static volatile Mode globalMode = Mode.FAST;
+
+    private Reduction() {
+    }
+
+    // the mode used by every reduction that isn't given one explicitly
+    public static void setGlobalMode(Mode mode) {
+        globalMode = Objects.requireNonNull(mode);
+    }
+
+    public static Mode getGlobalMode() {
+        return globalMode;
+    }
+
+    public static double sum(double[] a, Mode mode) {
+        return sum(a, 0, a.length, mode);
+    }
+
+    public static double sum(double[] a, int off, int n, Mode mode) {
+        return reduce(a, off, null, 0, n, mode, ForkJoinPool.commonPool());
+    }
+
+    public static double dot(double[] a, double[] b, Mode mode) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("cannot take dot product of arrays with lengths " + a.length +
+                    " and " + b.length);
+        }
+        return dot(a, 0, b, 0, a.length, mode);
+    }
+
+    public static double dot(double[] a, int aOff, double[] b, int bOff, int n, Mode mode) {
+        return reduce(a, aOff, Objects.requireNonNull(b), bOff, n, mode, ForkJoinPool.commonPool());
+    }
+
+    // b == null sums a; otherwise takes the dot product of a and b
+    static double reduce(double[] a, int aOff, double[] b, int bOff, int n, Mode mode, ForkJoinPool pool) {
+        if (mode == Mode.FAST || n <= LEAF) {
+            if (mode == Mode.COMPENSATED) {
+                double[] partial = new double[2];
+                leaf(a, aOff, b, bOff, n, true, partial, 0);
+                return partial[0] + partial[1];
+            }
+            return b == null ? sumRange(a, aOff, n) : dotRange(a, aOff, b, bOff, n);
+        }
+
+        final boolean compensated = mode == Mode.COMPENSATED;
+        final int leaves = (n + LEAF - 1) / LEAF;
+        // (sum, error) per leaf; error stays 0 when not compensated
+        final double[] partials = new double[2 * leaves];
+        if (n >= PARALLEL_THRESHOLD && pool.getParallelism() > 1) {
+            pool.submit(() -> IntStream.range(0, leaves).parallel().forEach(l ->
+                    leaf(a, aOff + l * LEAF, b, bOff + l * LEAF, Math.min(LEAF, n - l * LEAF), compensated,
+                            partials, 2 * l)
+            )).join();
+        } else {
+            for (int l = 0; l < leaves; l++) {
+                leaf(a, aOff + l * LEAF, b, bOff + l * LEAF, Math.min(LEAF, n - l * LEAF), compensated, partials,
+                        2 * l);
+            }
+        }
+        Accumulator acc = new Accumulator(mode);
+        for (int l = 0; l < leaves; l++) {
+            acc.push(partials[2 * l], partials[2 * l + 1]);
+        }
+        return acc.finish();
+    }
+
+    // a sum fed one element at a time that is bit-identical to sum(a, mode) over the same elements in the same
+    // order, in O(log n) memory. finished leaves are combined like a binary counter: two partials covering the
+    // same number of leaves merge as soon as both exist, and whatever is left is folded right to left at the
+    // end, so the tree shape depends only on the count. reusable after finish
+    static final class Accumulator {
+
+        private final boolean compensated;
+        // pending partials from the bottom of the stack up, with the number of leaves each covers
+        private final double[] sums = new double[64];
+        private final double[] errors = new double[64];
+        private final long[] leaves = new long[64];
+        private int depth;
+        private double s;
+        private double c;
+        private int count;
+
+        Accumulator(Mode mode) {
+            if (mode == Mode.FAST) {
+                throw new IllegalArgumentException("cannot accumulate in FAST mode, which has no leaf structure");
+            }
+            this.compensated = mode == Mode.COMPENSATED;
+        }
+
+        void add(double x) {
+            // the same per-element step as leaf
+            if (compensated) {
+                final double t = s + x;
+                c += twoSumError(s, x, t);
+                s = t;
+            } else {
+                s += x;
+            }
+            if (++count == LEAF) {
+                push(s, c);
+                s = 0;
+                c = 0;
+                count = 0;
+            }
+        }
+
+        // the sum of everything added since the last finish
+        double finish() {
+            if (count > 0 || depth == 0) {
+                push(s, c);
+            }
+            while (depth > 1) {
+                merge();
+            }
+            final double result = sums[0] + errors[0];
+            s = 0;
+            c = 0;
+            count = 0;
+            depth = 0;
+            return result;
+        }
+
+        private void push(double sum, double error) {
+            sums[depth] = sum;
+            errors[depth] = error;
+            leaves[depth++] = 1;
+            while (depth > 1 && leaves[depth - 1] == leaves[depth - 2]) {
+                merge();
+            }
+        }
+
+        // folds the top partial into the one below it
+        private void merge() {
+            final double x = sums[depth - 2];
+            final double y = sums[depth - 1];
+            final double sum = x + y;
+            if (compensated) {
+                errors[depth - 2] += errors[depth - 1] + twoSumError(x, y, sum);
+            }
+            sums[depth - 2] = sum;
+            leaves[depth - 2] += leaves[depth - 1];
+            depth--;
+        }
+
+    }
+
+    private static void leaf(double[] a, int aOff, double[] b, int bOff, int n, boolean compensated,
+                             double[] out, int at) {
+        if (!compensated) {
+            out[at] = b == null ? sumRange(a, aOff, n) : dotRange(a, aOff, b, bOff, n);
+            return;
+        }
+        double s = 0;
+        double c = 0;
+        for (int i = 0; i < n; i++) {
+            double x = a[aOff + i];
+            if (b != null) {
+                final double y = b[bOff + i];
+                x *= y;
+                // the exact low part of the product
+                c += Math.fma(a[aOff + i], y, -x);
+            }
+            final double t = s + x;
+            c += twoSumError(s, x, t);
+            s = t;
+        }
+        out[at] = s;
+        out[at + 1] = c;
+    }
+
+    // the rounding error of s = fl(x + y), exactly (knuth's twoSum)
+    private static double twoSumError(double x, double y, double s) {
+        final double yy = s - x;
+        return (x - (s - yy)) + (y - yy);
+    }
+
+    private static double sumRange(double[] a, int off, int n) {
+        double sum = 0;
+        for (int i = off; i < off + n; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    private static double dotRange(double[] a, int aOff, double[] b, int bOff, int n) {
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += a[aOff + i] * b[bOff + i];
+        }
+        return sum;
+    }
+
+}
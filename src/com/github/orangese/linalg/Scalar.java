@@ -2,9 +2,11 @@ package com.github.orangese.linalg;
 
 public class Scalar extends LinAlgObj {
 
+    private static final Shape SHAPE = new Shape();
+
     public Scalar(double val) {
         this.setData(new double[]{val});
-        this.setShape(new Shape());
+        this.setShape(SHAPE);
     }
 
     public double val() {
@@ -12,7 +14,7 @@ public class Scalar extends LinAlgObj {
     }
 
     public void set(double val) {
-        this.setData(new double[]{val});
+        data()[0] = val;
     }
 
     @Override
@@ -38,14 +40,17 @@ public class Scalar extends LinAlgObj {
     @Override
     public Scalar subtract(LinAlgObj o) {
         checkAddShapes(o, "scalar subtraction");
-        return new Scalar(val() + ((Scalar) o).val());
+        return new Scalar(val() - ((Scalar) o).val());
     }
 
     @Override
     public Matrix mul(Matrix o) {
         Matrix newMat = new Matrix(o.shape());
-        for (int i = 0; i < o.data().length; i++) {
-            newMat.data()[i] = val() * o.data()[i];
+        final double val = val();
+        final double[] src = o.data();
+        final double[] dest = newMat.data();
+        for (int i = 0; i < src.length; i++) {
+            dest[i] = val * src[i];
         }
         return newMat;
     }
@@ -91,43 +96,43 @@ public class Scalar extends LinAlgObj {
     }
 
     public Scalar add(double o) {
-        return add(new Scalar(o));
+        return new Scalar(val() + o);
     }
 
     public Scalar subtract(double o) {
-        return add(new Scalar(o));
+        return new Scalar(val() - o);
     }
 
     public Scalar mul(double o) {
-        return mul(new Scalar(o));
+        return new Scalar(val() * o);
     }
 
     public Scalar pow(double o) {
-        return pow(new Scalar(o));
+        return new Scalar(Math.pow(val(), o));
     }
 
     public Scalar div(double o) {
-        return div(new Scalar(o));
+        return new Scalar(val() / o);
     }
 
     public void iadd(double o) {
-        iadd(new Scalar(o));
+        set(val() + o);
     }
 
     public void isubtract(double o) {
-        isubtract(new Scalar(o));
+        set(val() - o);
     }
 
     public void imul(double o) {
-        imul(new Scalar(o));
+        set(val() * o);
     }
 
     public void ipow(double o) {
-        ipow(new Scalar(o));
+        set(Math.pow(val(), o));
     }
 
     public void idiv(double o) {
-        idiv(new Scalar(o));
+        set(val() / o);
     }
 
     @Override
@@ -1,40 +1,102 @@
 package com.github.orangese.linalg;
 
-import java.util.Objects;
+import java.util.Arrays;
 
 public class Shape {
 
-    private final int rowDim;
-    private final int colDim;
+    // two-axis shapes keep the original matrix semantics, where a zero dimension means the axis is absent
+    private final int[] dims;
 
     public Shape() {
         this(0, 0);
     }
 
     public Shape(int rowDim, int colDim) {
-        this.rowDim = rowDim;
-        this.colDim = colDim;
+        this.dims = new int[]{rowDim, colDim};
     }
 
     public Shape(Shape shape) {
-        this.rowDim = shape.rowDim;
-        this.colDim = shape.colDim;
+        this.dims = shape.dims.clone();
     }
 
+    private Shape(int[] dims) {
+        this.dims = dims;
+    }
+
+    // an n-d shape; with two dims this is the same as new Shape(rowDim, colDim)
+    public static Shape of(int... dims) {
+        for (int dim : dims) {
+            if (dim < 0) {
+                throw new IllegalArgumentException("dims must be ints greater than or equal to 0, got " +
+                        Arrays.toString(dims));
+            }
+        }
+        return dims.length == 0 ? new Shape() : new Shape(dims.clone());
+    }
+
+    // numpy rules: align trailing axes, and each pair must match or contain a 1
+    public static Shape broadcast(Shape a, Shape b) {
+        return new Shape(broadcast(a.dims, b.dims));
+    }
+
+    static int[] broadcast(int[] a, int[] b) {
+        final int n = Math.max(a.length, b.length);
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            final int da = i < n - a.length ? 1 : a[i - (n - a.length)];
+            final int db = i < n - b.length ? 1 : b[i - (n - b.length)];
+            if (da != db && da != 1 && db != 1) {
+                throw new IllegalArgumentException("cannot broadcast shapes " + new Shape(a) + " and " + new Shape(b));
+            }
+            result[i] = da == 1 ? db : da;
+        }
+        return result;
+    }
+
+    // the trailing two axes; a 1-d shape is a column
     public int rowDim() {
-        return rowDim;
+        return dims.length >= 2 ? dims[dims.length - 2] : dims[0];
     }
 
     public int colDim() {
-        return colDim;
+        return dims.length >= 2 ? dims[dims.length - 1] : 1;
     }
 
+    public int dim(int axis) {
+        return dims[axis(axis)];
+    }
+
+    public int[] dims() {
+        return dims.clone();
+    }
+
+    public int numAxes() {
+        return dims.length;
+    }
+
+    // the number of elements, for any number of axes. Matrix and Scalar, which read a zero dim as an absent axis,
+    // get their storage size from LinAlgObj.storageSize instead
     public int size() {
-        return Math.max(rowDim * colDim, 1);
+        int size = 1;
+        for (int dim : dims) {
+            size *= dim;
+        }
+        return size;
     }
 
     public int ndims() {
-        return (this.rowDim == 0 ? 0: 1) + (this.colDim == 0 ? 0: 1);
+        if (dims.length == 2) {
+            return (dims[0] == 0 ? 0 : 1) + (dims[1] == 0 ? 0 : 1);
+        }
+        return dims.length;
+    }
+
+    // negative axes count from the end
+    int axis(int axis) {
+        if (axis < -dims.length || axis >= dims.length) {
+            throw new IllegalArgumentException("axis " + axis + " out of range for shape " + this);
+        }
+        return axis < 0 ? axis + dims.length : axis;
     }
 
     public boolean equals(int rowDim, int colDim) {
@@ -46,17 +108,20 @@ public class Shape {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Shape shape = (Shape) o;
-        return rowDim == shape.rowDim &&
-                colDim == shape.colDim;
+        return Arrays.equals(dims, shape.dims);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(rowDim, colDim);
+        return Arrays.hashCode(dims);
     }
 
     public String toString() {
-        return "(" + rowDim + ", " + colDim + ")";
+        StringBuilder result = new StringBuilder("(");
+        for (int i = 0; i < dims.length; i++) {
+            result.append(i == 0 ? "" : ", ").append(dims[i]);
+        }
+        return result.append(")").toString();
     }
 
 }
@@ -0,0 +1,63 @@
+package com.github.orangese.linalg;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+public class SharedMatrix {
+
+    private final AtomicReference<Matrix> current;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public SharedMatrix(Matrix initial) {
+        current = new AtomicReference<>(initial.freeze());
+    }
+
+    // lock-free; the returned matrix is frozen, so it stays consistent however long the caller holds it
+    public Matrix snapshot() {
+        return current.get();
+    }
+
+    public void publish(Matrix next) {
+        final Matrix frozen = next.freeze();
+        writeLock.lock();
+        try {
+            current.set(frozen);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean compareAndPublish(Matrix expected, Matrix next) {
+        final Matrix frozen = next.freeze();
+        writeLock.lock();
+        try {
+            return current.compareAndSet(expected, frozen);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // copy-on-write: the updater edits a private copy while readers keep seeing the previous snapshot
+    public Matrix update(Consumer<Matrix> updater) {
+        Objects.requireNonNull(updater);
+        writeLock.lock();
+        try {
+            Matrix working = new Matrix(current.get());
+            updater.accept(working);
+            // any reference the updater kept to the copy becomes frozen along with it
+            Matrix next = working.freezeInPlace();
+            current.set(next);
+            return next;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+}
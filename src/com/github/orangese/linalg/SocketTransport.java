@@ -0,0 +1,237 @@
+package com.github.orangese.linalg;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+// one tcp connection per pair of ranks, for ranks in separate JVMs. each frame is a (tag, length) header followed
+// by the doubles themselves, moved in bulk between the heap array and a reused direct buffer
+public class SocketTransport implements Transport {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int CHUNK_DOUBLES = 1 << 16;
+    private static final long CONNECT_TIMEOUT_MILLIS = 60_000;
+    private static final long CONNECT_RETRY_MILLIS = 50;
+
+    private final int rank;
+    private final int size;
+    private final SocketChannel[] channels;
+    private final ByteBuffer[] sendBuffers;
+    private final Mailbox mailbox = new Mailbox();
+    private final List<Thread> readers = new ArrayList<>();
+    private volatile boolean closed;
+
+    private SocketTransport(int rank, SocketChannel[] channels) {
+        this.rank = rank;
+        this.size = channels.length;
+        this.channels = channels;
+        this.sendBuffers = new ByteBuffer[size];
+        for (int peer = 0; peer < size; peer++) {
+            if (channels[peer] != null) {
+                sendBuffers[peer] = ByteBuffer.allocateDirect(HEADER_BYTES + CHUNK_DOUBLES * Double.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                final int source = peer;
+                Thread reader = new Thread(() -> readLoop(source), "linalg-transport-" + rank + "<-" + peer);
+                reader.setDaemon(true);
+                readers.add(reader);
+            }
+        }
+        for (Thread reader : readers) {
+            reader.start();
+        }
+    }
+
+    // every rank calls this with the same address list; rank r listens on addresses.get(r), connects to the ranks
+    // below it and accepts the ranks above it
+    public static SocketTransport connect(int rank, List<InetSocketAddress> addresses) throws IOException {
+        final int size = addresses.size();
+        if (rank < 0 || rank >= size) {
+            throw new IllegalArgumentException("rank " + rank + " out of range for " + size + " ranks");
+        }
+        SocketChannel[] channels = new SocketChannel[size];
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(addresses.get(rank));
+            for (int peer = 0; peer < rank; peer++) {
+                SocketChannel channel = connectWithRetry(addresses.get(peer));
+                ByteBuffer hello = ByteBuffer.allocate(Integer.BYTES).putInt(0, rank);
+                writeFully(channel, hello);
+                channels[peer] = channel;
+            }
+            for (int accepted = rank + 1; accepted < size; accepted++) {
+                SocketChannel channel = server.accept();
+                ByteBuffer hello = ByteBuffer.allocate(Integer.BYTES);
+                readFully(channel, hello);
+                final int peer = hello.getInt(0);
+                if (peer <= rank || peer >= size || channels[peer] != null) {
+                    channel.close();
+                    throw new IOException("unexpected handshake from rank " + peer);
+                }
+                channels[peer] = channel;
+            }
+        } catch (IOException | RuntimeException exc) {
+            for (SocketChannel channel : channels) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+            throw exc;
+        }
+        for (SocketChannel channel : channels) {
+            if (channel != null) {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+        }
+        return new SocketTransport(rank, channels);
+    }
+
+    private static SocketChannel connectWithRetry(InetSocketAddress address) throws IOException {
+        final long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        while (true) {
+            SocketChannel channel = SocketChannel.open();
+            try {
+                channel.connect(address);
+                return channel;
+            } catch (IOException exc) {
+                channel.close();
+                // the peer may simply not be listening yet
+                if (System.currentTimeMillis() > deadline) {
+                    throw exc;
+                }
+            }
+            try {
+                Thread.sleep(CONNECT_RETRY_MILLIS);
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while connecting to " + address, exc);
+            }
+        }
+    }
+
+    @Override
+    public int rank() {
+        return rank;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void send(int dest, int tag, double[] data) {
+        checkRank(dest);
+        if (dest == rank) {
+            mailbox.put(rank, tag, data);
+            return;
+        }
+        final SocketChannel channel = channels[dest];
+        final ByteBuffer buffer = sendBuffers[dest];
+        synchronized (buffer) {
+            try {
+                buffer.clear();
+                buffer.putInt(tag).putInt(data.length);
+                int sent = 0;
+                do {
+                    final int count = Math.min(CHUNK_DOUBLES, data.length - sent);
+                    buffer.asDoubleBuffer().put(data, sent, count);
+                    buffer.position(buffer.position() + count * Double.BYTES);
+                    buffer.flip();
+                    writeFully(channel, buffer);
+                    buffer.clear();
+                    sent += count;
+                } while (sent < data.length);
+            } catch (IOException exc) {
+                throw new UncheckedIOException("failed to send to rank " + dest, exc);
+            }
+        }
+    }
+
+    @Override
+    public double[] receive(int source, int tag) {
+        checkRank(source);
+        return mailbox.take(source, tag);
+    }
+
+    private void readLoop(int source) {
+        final SocketChannel channel = channels[source];
+        final ByteBuffer header = ByteBuffer.allocateDirect(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_DOUBLES * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            while (!closed) {
+                header.clear();
+                readFully(channel, header);
+                final int tag = header.getInt(0);
+                final double[] data = new double[header.getInt(Integer.BYTES)];
+                int received = 0;
+                while (received < data.length) {
+                    final int count = Math.min(CHUNK_DOUBLES, data.length - received);
+                    chunk.clear().limit(count * Double.BYTES);
+                    readFully(channel, chunk);
+                    chunk.flip();
+                    chunk.asDoubleBuffer().get(data, received, count);
+                    received += count;
+                }
+                mailbox.put(source, tag, data);
+            }
+        } catch (IOException exc) {
+            if (!closed) {
+                mailbox.fail(new UncheckedIOException("lost connection to rank " + source, exc));
+            }
+        }
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("connection closed");
+            }
+        }
+    }
+
+    private void checkRank(int other) {
+        if (other < 0 || other >= size) {
+            throw new IllegalArgumentException("rank " + other + " out of range for " + size + " ranks");
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        IOException failure = null;
+        for (SocketChannel channel : channels) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException exc) {
+                    failure = exc;
+                }
+            }
+        }
+        for (Thread reader : readers) {
+            try {
+                reader.join();
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+}
@@ -0,0 +1,315 @@
+package com.github.orangese.linalg;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// winograd's variant of strassen: 7 half-size products and 15 additions per level instead of 8 products.
+// the error bound is normwise rather than componentwise (higham, accuracy and stability, 23.2.2):
+//     max|C - fl(C)| <= [(n / n0)^log2(18) * (n0^2 + 6 n0) - 6n] * u * max|A| * max|B|
+// where n0 is the size at which recursion stops. the classical kernel guarantees |C - fl(C)| <= n u |A||B|
+// entrywise, so entries of C much smaller than |A||B| can lose relative accuracy here; a larger cutoff means
+// fewer levels and a tighter bound.
+public class StrassenMultiplier {
+
+    public static final int DEFAULT_CUTOFF = 256;
+    private static final int PRODUCTS = 7;
+
+    private static volatile StrassenMultiplier global;
+
+    private final int cutoff;
+    private final ForkJoinPool pool;
+    private final ConcurrentLinkedQueue<Workspace> workspaces = new ConcurrentLinkedQueue<>();
+
+    public StrassenMultiplier() {
+        this(DEFAULT_CUTOFF, ForkJoinPool.commonPool());
+    }
+
+    public StrassenMultiplier(int cutoff, ForkJoinPool pool) {
+        if (cutoff <= 0) {
+            throw new IllegalArgumentException("cutoff must be an int greater than 0");
+        }
+        this.cutoff = cutoff;
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    // once enabled, Matrix.mul routes every product that shouldUse accepts through this multiplier
+    public static void enable() {
+        enable(new StrassenMultiplier());
+    }
+
+    public static void enable(StrassenMultiplier multiplier) {
+        global = Objects.requireNonNull(multiplier);
+    }
+
+    public static void disable() {
+        global = null;
+    }
+
+    public static StrassenMultiplier global() {
+        return global;
+    }
+
+    public int cutoff() {
+        return cutoff;
+    }
+
+    // drops the scratch kept between calls; the next product allocates afresh
+    public void releaseScratch() {
+        workspaces.clear();
+    }
+
+    // at least one level of recursion, which needs every dimension to be at least twice the cutoff
+    public boolean shouldUse(int m, int k, int n) {
+        return levels(m, k, n) > 0;
+    }
+
+    // halves every dimension until the smallest one would drop below the cutoff
+    int levels(int m, int k, int n) {
+        final int min = Math.min(m, Math.min(k, n));
+        int levels = 0;
+        while (levels < 30 && (min >> (levels + 1)) >= cutoff) {
+            levels++;
+        }
+        return levels;
+    }
+
+    public Matrix mul(Matrix a, Matrix b) {
+        if (a.colDim() != b.rowDim()) {
+            throw new IllegalArgumentException(String.format(
+                    "cannot perform strassen multiplication between shapes %s and %s", a.shape(), b.shape()
+            ));
+        }
+        final int m = a.rowDim();
+        final int k = a.colDim();
+        final int n = b.colDim();
+        final int levels = levels(m, k, n);
+        Matrix result = new Matrix(new Shape(m, n));
+        if (levels == 0) {
+            TileKernels.gemmBlocked(a.rowMajorData(), 0, k, b.rowMajorData(), 0, n, result.data(), 0, n, m, n, k);
+            result.markModified();
+            return result;
+        }
+
+        // pad every dimension to a multiple of 2^levels so that each level splits evenly
+        final int mp = roundUp(m, levels);
+        final int kp = roundUp(k, levels);
+        final int np = roundUp(n, levels);
+        final boolean padded = mp != m || kp != k || np != n;
+
+        Workspace ws = workspaces.poll();
+        if (ws == null) {
+            ws = new Workspace();
+        }
+        try {
+            final double[] ap = pad(a, mp, kp, ws, 0);
+            final double[] bp = pad(b, kp, np, ws, 1);
+            final double[] cp = padded ? ws.buffer(2, mp * np) : result.data();
+
+            if (pool.getParallelism() > 1) {
+                multiplyParallel(ap, kp, bp, np, cp, np, mp, kp, np, levels, ws);
+            } else {
+                final double[] arena = ws.buffer(3, arenaSize(mp, kp, np, levels));
+                multiply(ap, 0, kp, bp, 0, np, cp, 0, np, mp, kp, np, levels, arena, 0);
+            }
+
+            if (padded) {
+                for (int i = 0; i < m; i++) {
+                    System.arraycopy(cp, i * np, result.data(), i * n, n);
+                }
+            }
+        } finally {
+            workspaces.offer(ws);
+        }
+        result.markModified();
+        return result;
+    }
+
+    // extra doubles one sequential call needs below a product of this size
+    private static int arenaSize(int m, int k, int n, int levels) {
+        int size = 0;
+        for (int level = 0; level < levels; level++) {
+            m /= 2;
+            k /= 2;
+            n /= 2;
+            size += m * Math.max(k, n) + k * n;
+        }
+        return size;
+    }
+
+    // the top level runs its seven products as independent tasks, each recursing sequentially in its own arena
+    private void multiplyParallel(double[] a, int lda, double[] b, int ldb, double[] c, int ldc,
+                                  int m, int k, int n, int levels, Workspace ws) {
+        final int mh = m / 2;
+        final int kh = k / 2;
+        final int nh = n / 2;
+        final int a11 = 0, a12 = kh, a21 = mh * lda, a22 = a21 + kh;
+        final int b11 = 0, b12 = nh, b21 = kh * ldb, b22 = b21 + nh;
+        final int c11 = 0, c12 = nh, c21 = mh * ldc, c22 = c21 + nh;
+
+        final int sSize = mh * kh;
+        final int tSize = kh * nh;
+        final int pSize = mh * nh;
+        final double[] top = ws.buffer(3, 4 * sSize + 4 * tSize + 3 * pSize);
+        final int s1 = 0, s2 = sSize, s3 = 2 * sSize, s4 = 3 * sSize;
+        final int t1 = 4 * sSize, t2 = t1 + tSize, t3 = t2 + tSize, t4 = t3 + tSize;
+        final int p1 = 4 * sSize + 4 * tSize, p6 = p1 + pSize, p7 = p6 + pSize;
+
+        combine(a, a21, lda, 1, a, a22, lda, top, s1, kh, mh, kh);
+        combine(top, s1, kh, -1, a, a11, lda, top, s2, kh, mh, kh);
+        combine(a, a11, lda, -1, a, a21, lda, top, s3, kh, mh, kh);
+        combine(a, a12, lda, -1, top, s2, kh, top, s4, kh, mh, kh);
+        combine(b, b12, ldb, -1, b, b11, ldb, top, t1, nh, kh, nh);
+        combine(b, b22, ldb, -1, top, t1, nh, top, t2, nh, kh, nh);
+        combine(b, b22, ldb, -1, b, b12, ldb, top, t3, nh, kh, nh);
+        combine(top, t2, nh, -1, b, b21, ldb, top, t4, nh, kh, nh);
+
+        final int arenaSize = arenaSize(mh, kh, nh, levels - 1);
+        final double[][] arenas = new double[PRODUCTS][];
+        for (int p = 0; p < PRODUCTS; p++) {
+            arenas[p] = ws.buffer(4 + p, arenaSize);
+        }
+
+        pool.submit(() -> IntStream.range(0, PRODUCTS).parallel().forEach(p -> {
+            final double[] arena = arenas[p];
+            switch (p) {
+                case 0:
+                    multiply(a, a11, lda, b, b11, ldb, top, p1, nh, mh, kh, nh, levels - 1, arena, 0);
+                    break;
+                case 1:
+                    multiply(a, a12, lda, b, b21, ldb, c, c11, ldc, mh, kh, nh, levels - 1, arena, 0);
+                    break;
+                case 2:
+                    multiply(top, s4, kh, b, b22, ldb, c, c12, ldc, mh, kh, nh, levels - 1, arena, 0);
+                    break;
+                case 3:
+                    multiply(a, a22, lda, top, t4, nh, c, c21, ldc, mh, kh, nh, levels - 1, arena, 0);
+                    break;
+                case 4:
+                    multiply(top, s1, kh, top, t1, nh, c, c22, ldc, mh, kh, nh, levels - 1, arena, 0);
+                    break;
+                case 5:
+                    multiply(top, s2, kh, top, t2, nh, top, p6, nh, mh, kh, nh, levels - 1, arena, 0);
+                    break;
+                default:
+                    multiply(top, s3, kh, top, t3, nh, top, p7, nh, mh, kh, nh, levels - 1, arena, 0);
+                    break;
+            }
+        })).join();
+
+        // c11 = p2 + p1, c12 = p3 + u2 + p5, c21 = u2 + p7 - p4, c22 = p5 + u2 + p7 with u2 = p1 + p6
+        combine(c, c11, ldc, 1, top, p1, nh, c, c11, ldc, mh, nh);
+        combine(top, p1, nh, 1, top, p6, nh, top, p1, nh, mh, nh);
+        combine(c, c12, ldc, 1, top, p1, nh, c, c12, ldc, mh, nh);
+        combine(c, c12, ldc, 1, c, c22, ldc, c, c12, ldc, mh, nh);
+        combine(top, p1, nh, -1, c, c21, ldc, c, c21, ldc, mh, nh);
+        combine(c, c21, ldc, 1, top, p7, nh, c, c21, ldc, mh, nh);
+        combine(c, c22, ldc, 1, top, p1, nh, c, c22, ldc, mh, nh);
+        combine(c, c22, ldc, 1, top, p7, nh, c, c22, ldc, mh, nh);
+    }
+
+    // c = a * b, overwriting c; sequential schedule with two temporaries per level (boyer, dumas, pernet and zhou)
+    private static void multiply(double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                                 double[] c, int cOff, int ldc, int m, int k, int n,
+                                 int levels, double[] arena, int arenaOff) {
+        if (levels == 0) {
+            for (int i = 0; i < m; i++) {
+                Arrays.fill(c, cOff + i * ldc, cOff + i * ldc + n, 0);
+            }
+            TileKernels.gemmBlocked(a, aOff, lda, b, bOff, ldb, c, cOff, ldc, m, n, k);
+            return;
+        }
+
+        final int mh = m / 2;
+        final int kh = k / 2;
+        final int nh = n / 2;
+        final int a11 = aOff, a12 = aOff + kh, a21 = aOff + mh * lda, a22 = a21 + kh;
+        final int b11 = bOff, b12 = bOff + nh, b21 = bOff + kh * ldb, b22 = b21 + nh;
+        final int c11 = cOff, c12 = cOff + nh, c21 = cOff + mh * ldc, c22 = c21 + nh;
+
+        // x holds an (mh x kh) sum of A blocks and later P1 (mh x nh); y holds a (kh x nh) sum of B blocks
+        final int ldx = Math.max(kh, nh);
+        final int x = arenaOff;
+        final int y = x + mh * ldx;
+        final int next = y + kh * nh;
+        final int sub = levels - 1;
+
+        combine(a, a11, lda, -1, a, a21, lda, arena, x, ldx, mh, kh);
+        combine(b, b22, ldb, -1, b, b12, ldb, arena, y, nh, kh, nh);
+        multiply(arena, x, ldx, arena, y, nh, c, c21, ldc, mh, kh, nh, sub, arena, next);
+        combine(a, a21, lda, 1, a, a22, lda, arena, x, ldx, mh, kh);
+        combine(b, b12, ldb, -1, b, b11, ldb, arena, y, nh, kh, nh);
+        multiply(arena, x, ldx, arena, y, nh, c, c22, ldc, mh, kh, nh, sub, arena, next);
+        combine(arena, x, ldx, -1, a, a11, lda, arena, x, ldx, mh, kh);
+        combine(b, b22, ldb, -1, arena, y, nh, arena, y, nh, kh, nh);
+        multiply(arena, x, ldx, arena, y, nh, c, c12, ldc, mh, kh, nh, sub, arena, next);
+        combine(a, a12, lda, -1, arena, x, ldx, arena, x, ldx, mh, kh);
+        multiply(arena, x, ldx, b, b22, ldb, c, c11, ldc, mh, kh, nh, sub, arena, next);
+        multiply(a, a11, lda, b, b11, ldb, arena, x, ldx, mh, kh, nh, sub, arena, next);
+        combine(arena, x, ldx, 1, c, c12, ldc, c, c12, ldc, mh, nh);
+        combine(c, c12, ldc, 1, c, c21, ldc, c, c21, ldc, mh, nh);
+        combine(c, c12, ldc, 1, c, c22, ldc, c, c12, ldc, mh, nh);
+        combine(c, c21, ldc, 1, c, c22, ldc, c, c22, ldc, mh, nh);
+        combine(c, c12, ldc, 1, c, c11, ldc, c, c12, ldc, mh, nh);
+        combine(arena, y, nh, -1, b, b21, ldb, arena, y, nh, kh, nh);
+        multiply(a, a22, lda, arena, y, nh, c, c11, ldc, mh, kh, nh, sub, arena, next);
+        combine(c, c21, ldc, -1, c, c11, ldc, c, c21, ldc, mh, nh);
+        multiply(a, a12, lda, b, b21, ldb, c, c11, ldc, mh, kh, nh, sub, arena, next);
+        combine(arena, x, ldx, 1, c, c11, ldc, c, c11, ldc, mh, nh);
+    }
+
+    // dest = x + sign * y over a rows x cols block; dest may alias either operand
+    private static void combine(double[] x, int xOff, int ldx, int sign, double[] y, int yOff, int ldy,
+                                double[] dest, int dOff, int ldd, int rows, int cols) {
+        for (int i = 0; i < rows; i++) {
+            final int xRow = xOff + i * ldx;
+            final int yRow = yOff + i * ldy;
+            final int dRow = dOff + i * ldd;
+            if (sign > 0) {
+                for (int j = 0; j < cols; j++) {
+                    dest[dRow + j] = x[xRow + j] + y[yRow + j];
+                }
+            } else {
+                for (int j = 0; j < cols; j++) {
+                    dest[dRow + j] = x[xRow + j] - y[yRow + j];
+                }
+            }
+        }
+    }
+
+    private static int roundUp(int dim, int levels) {
+        final int step = 1 << levels;
+        return (dim + step - 1) / step * step;
+    }
+
+    private static double[] pad(Matrix mat, int rows, int cols, Workspace ws, int slot) {
+        if (rows == mat.rowDim() && cols == mat.colDim() && mat.isRowMajor()) {
+            return mat.data();
+        }
+        final double[] src = mat.rowMajorData();
+        final double[] dest = ws.buffer(slot, rows * cols);
+        for (int i = 0; i < mat.rowDim(); i++) {
+            System.arraycopy(src, i * mat.colDim(), dest, i * cols, mat.colDim());
+            Arrays.fill(dest, i * cols + mat.colDim(), (i + 1) * cols, 0);
+        }
+        Arrays.fill(dest, mat.rowDim() * cols, rows * cols, 0);
+        return dest;
+    }
+
+    // scratch that outlives a single call, so repeated products of similar size allocate nothing new
+    private static final class Workspace {
+
+        private final double[][] buffers = new double[4 + PRODUCTS][0];
+
+        private double[] buffer(int slot, int size) {
+            if (buffers[slot].length < size) {
+                buffers[slot] = new double[size];
+            }
+            return buffers[slot];
+        }
+
+    }
+
+}
@@ -1,46 +1,316 @@
 package com.github.orangese.linalg;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 public class Subspace {
 
-    private final LUPDecomp solver;
-    private final Vector[] basis;
+    public final static double DEFAULT_TOL = 1e-10;
+    private static final int MAX_JACOBI_SWEEPS = 64;
+
+    private final int encompassingSpace;
+    private final double tol;
+    private final List<double[]> orthonormal;
+    private Vector[] basis;
+
+    public Subspace(int encompassingSpace) {
+        this(encompassingSpace, DEFAULT_TOL);
+    }
+
+    public Subspace(int encompassingSpace, double tol) {
+        if (encompassingSpace <= 0) {
+            throw new IllegalArgumentException("encompassing space must have dimension greater than 0");
+        }
+        if (!(tol > 0 && tol < 1)) {
+            throw new IllegalArgumentException("tol must be a double between 0 and 1");
+        }
+        this.encompassingSpace = encompassingSpace;
+        this.tol = tol;
+        this.orthonormal = new ArrayList<>();
+    }
 
     public Subspace(Matrix mat) {
-        if (mat.size() == 0) {
+        this(mat, DEFAULT_TOL);
+    }
+
+    public Subspace(Matrix mat, double tol) {
+        this(mat.rowDim(), tol);
+        if (mat.size() == 0 || mat.colDim() == 0) {
             throw new IllegalArgumentException("cannot create subspace out of empty matrix");
         }
-        solver = new LUPDecomp(mat);
-        basis = new Vector[solver.rank()];
-        for (int i = 0; i < basis.length; i++) {
-            mat.copyCol(solver.getPivotPos().get(i), basis[i]);
+        double[] col = new double[mat.rowDim()];
+        for (int j = 0; j < mat.colDim(); j++) {
+            for (int i = 0; i < col.length; i++) {
+                col[i] = mat.get(i, j);
+            }
+            extend(col);
         }
     }
 
+    // spans the given vectors, whether they are stored as rows or columns
     public Subspace(Vector... vectors) {
-        this(new Matrix(vectors));
+        this(checkNonEmpty(vectors)[0].size());
+        for (Vector vec : vectors) {
+            add(vec);
+        }
+    }
+
+    private Subspace(Subspace o) {
+        this(o.encompassingSpace, o.tol);
+        for (double[] q : o.orthonormal) {
+            orthonormal.add(q.clone());
+        }
+    }
+
+    // grows the basis by the component of x orthogonal to it; returns false if x was already in the span
+    public boolean add(Vector x) {
+        checkAmbient(x);
+        return extend(x.data());
+    }
+
+    public Vector project(Vector x) {
+        checkAmbient(x);
+        double[] proj = new double[encompassingSpace];
+        for (double[] q : orthonormal) {
+            axpy(dot(q, x.data()), q, proj);
+        }
+        return new Vector(proj, x.shape());
+    }
+
+    public double residual(Vector x) {
+        checkAmbient(x);
+        return norm(orthogonalize(x.data()));
     }
 
     public boolean contains(Vector x) {
-        try {
-            solver.solve(x);
-            return true;
-        } catch (UnsupportedOperationException|IllegalArgumentException exc) {
-            return false;
+        return contains(x, tol);
+    }
+
+    public boolean contains(Vector x, double tol) {
+        return residual(x) <= tol * Math.max(norm(x.data()), Double.MIN_NORMAL);
+    }
+
+    public Subspace sum(Subspace o) {
+        checkAmbient(o);
+        Subspace sum = new Subspace(this);
+        for (double[] q : o.orthonormal) {
+            sum.extend(q);
+        }
+        return sum;
+    }
+
+    public Subspace intersection(Subspace o) {
+        checkAmbient(o);
+        Subspace intersection = new Subspace(encompassingSpace, tol);
+        for (double[] direction : principalVectors(o)) {
+            // sin of the angle between the two subspaces along this direction, accurate even when tiny
+            if (norm(orthogonalize(direction)) <= tol) {
+                intersection.extend(direction);
+            }
         }
+        return intersection;
+    }
+
+    // radians, ascending, min(dim(), o.dim()) of them
+    public double[] principalAngles(Subspace o) {
+        checkAmbient(o);
+        List<double[]> directions = principalVectors(o);
+        double[] angles = new double[directions.size()];
+        for (int i = 0; i < angles.length; i++) {
+            double[] direction = directions.get(i);
+            double[] perp = orthogonalize(direction);
+            double cos = 0;
+            for (double[] q : orthonormal) {
+                final double d = dot(q, direction);
+                cos += d * d;
+            }
+            angles[i] = Math.atan2(norm(perp), Math.sqrt(cos));
+        }
+        Arrays.sort(angles);
+        return angles;
     }
 
     public Vector[] basis() {
+        if (basis == null || basis.length != orthonormal.size()) {
+            basis = new Vector[orthonormal.size()];
+            for (int i = 0; i < basis.length; i++) {
+                basis[i] = new Vector(orthonormal.get(i).clone());
+            }
+        }
         return basis;
     }
 
     public int dim() {
-        return basis().length;
+        return orthonormal.size();
     }
 
     public int encompassingSpace() {
-        return solver.U().rowDim();
+        return encompassingSpace;
+    }
+
+    public double tol() {
+        return tol;
+    }
+
+    private boolean extend(double[] x) {
+        if (orthonormal.size() == encompassingSpace) {
+            return false;
+        }
+        final double scale = norm(x);
+        if (scale == 0) {
+            return false;
+        }
+        double[] r = orthogonalize(x);
+        final double rNorm = norm(r);
+        if (rNorm <= tol * scale) {
+            return false;
+        }
+        for (int i = 0; i < r.length; i++) {
+            r[i] /= rNorm;
+        }
+        orthonormal.add(r);
+        return true;
+    }
+
+    // two passes of gram-schmidt keep the basis orthogonal to working precision
+    private double[] orthogonalize(double[] x) {
+        double[] r = x.clone();
+        for (int pass = 0; pass < 2; pass++) {
+            for (double[] q : orthonormal) {
+                axpy(-dot(q, r), q, r);
+            }
+        }
+        return r;
+    }
+
+    // the directions of o that make the principal angles with this subspace, from the svd of Q1^T Q2. they must
+    // come from o's basis even when o is the larger side, where only the min(dim(), o.dim()) right singular
+    // vectors with the largest singular values are principal
+    private List<double[]> principalVectors(Subspace o) {
+        List<double[]> result = new ArrayList<>();
+        if (dim() == 0 || o.dim() == 0) {
+            return result;
+        }
+
+        final int rows = dim();
+        final int cols = o.dim();
+        double[][] cross = new double[cols][rows];
+        for (int j = 0; j < cols; j++) {
+            for (int i = 0; i < rows; i++) {
+                cross[j][i] = dot(orthonormal.get(i), o.orthonormal.get(j));
+            }
+        }
+        double[][] v = jacobiRightVectors(cross);
+
+        // after jacobi the columns of cross are orthogonal with norms equal to the singular values
+        Integer[] order = new Integer[cols];
+        double[] sigma = new double[cols];
+        for (int j = 0; j < cols; j++) {
+            order[j] = j;
+            sigma[j] = norm(cross[j]);
+        }
+        Arrays.sort(order, (x, y) -> Double.compare(sigma[y], sigma[x]));
+
+        for (int k = 0; k < Math.min(rows, cols); k++) {
+            final int j = order[k];
+            double[] direction = new double[encompassingSpace];
+            for (int p = 0; p < cols; p++) {
+                axpy(v[j][p], o.orthonormal.get(p), direction);
+            }
+            result.add(direction);
+        }
+        return result;
+    }
+
+    // one-sided jacobi on the columns of a (stored column-major); returns the right singular vectors
+    private static double[][] jacobiRightVectors(double[][] a) {
+        final int n = a.length;
+        double[][] v = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            v[i][i] = 1;
+        }
+
+        for (int sweep = 0; sweep < MAX_JACOBI_SWEEPS; sweep++) {
+            boolean rotated = false;
+            for (int p = 0; p < n - 1; p++) {
+                for (int q = p + 1; q < n; q++) {
+                    final double alpha = dot(a[p], a[p]);
+                    final double beta = dot(a[q], a[q]);
+                    final double gamma = dot(a[p], a[q]);
+                    if (Math.abs(gamma) <= 1e-15 * Math.sqrt(alpha * beta)) {
+                        continue;
+                    }
+                    rotated = true;
+
+                    final double zeta = (beta - alpha) / (2 * gamma);
+                    final double t = Math.signum(zeta == 0 ? 1 : zeta) / (Math.abs(zeta) + Math.sqrt(1 + zeta * zeta));
+                    final double c = 1 / Math.sqrt(1 + t * t);
+                    final double s = c * t;
+                    rotate(a[p], a[q], c, s);
+                    rotate(v[p], v[q], c, s);
+                }
+            }
+            if (!rotated) {
+                break;
+            }
+        }
+        return v;
+    }
+
+    private static void rotate(double[] x, double[] y, double c, double s) {
+        for (int i = 0; i < x.length; i++) {
+            final double xi = x[i];
+            x[i] = c * xi - s * y[i];
+            y[i] = s * xi + c * y[i];
+        }
+    }
+
+    private static double dot(double[] x, double[] y) {
+        return Reduction.dot(x, y, Reduction.getGlobalMode());
+    }
+
+    private static void axpy(double alpha, double[] x, double[] y) {
+        for (int i = 0; i < x.length; i++) {
+            y[i] += alpha * x[i];
+        }
+    }
+
+    private static double norm(double[] x) {
+        double scale = 0;
+        for (double val : x) {
+            scale = Math.max(scale, Math.abs(val));
+        }
+        if (scale == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (double val : x) {
+            sum += (val / scale) * (val / scale);
+        }
+        return scale * Math.sqrt(sum);
+    }
+
+    private void checkAmbient(Vector x) {
+        if (x.size() != encompassingSpace) {
+            throw new IllegalArgumentException("vector with shape " + x.shape() +
+                    " is not in a space of dimension " + encompassingSpace);
+        }
+    }
+
+    private void checkAmbient(Subspace o) {
+        if (o.encompassingSpace != encompassingSpace) {
+            throw new IllegalArgumentException("cannot combine subspaces of spaces with dimensions " +
+                    encompassingSpace + " and " + o.encompassingSpace);
+        }
+    }
+
+    private static Vector[] checkNonEmpty(Vector[] vectors) {
+        if (vectors.length == 0) {
+            throw new IllegalArgumentException("cannot create subspace out of no vectors");
+        }
+        return vectors;
     }
 
     @Override
@@ -48,16 +318,23 @@ public class Subspace {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Subspace subspace = (Subspace) o;
-        return Objects.equals(solver, subspace.solver);
+        if (encompassingSpace != subspace.encompassingSpace || dim() != subspace.dim()) return false;
+        for (Vector vec : subspace.basis()) {
+            if (!contains(vec, Math.max(tol, subspace.tol))) return false;
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(solver);
+        return Objects.hash(encompassingSpace, dim());
     }
 
     @Override
     public String toString() {
+        if (dim() == 0) {
+            return "Basis: {0}";
+        }
         StringBuilder result = new StringBuilder("Basis: ");
         for (Vector vec : basis()) {
             result.append(vec).append(",\n");
@@ -0,0 +1,168 @@
+package com.github.orangese.linalg;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TaskGraph {
+
+    private final List<Task> tasks = new ArrayList<>();
+    private boolean started;
+
+    public Task add(String name, int priority, Runnable kernel, Task... dependencies) {
+        if (started) {
+            throw new IllegalStateException("cannot add tasks to a graph that has already run");
+        }
+        Task task = new Task(name, priority, kernel);
+        for (Task dep : dependencies) {
+            if (dep != null) {
+                dep.successors.add(task);
+                task.remaining.incrementAndGet();
+            }
+        }
+        tasks.add(task);
+        return task;
+    }
+
+    public int size() {
+        return tasks.size();
+    }
+
+    public void run() {
+        run(ForkJoinPool.commonPool());
+    }
+
+    public void run(ForkJoinPool pool) {
+        if (started) {
+            throw new IllegalStateException("task graph has already run");
+        }
+        started = true;
+
+        final CountDownLatch done = new CountDownLatch(tasks.size());
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        // collect the roots first: once the first one runs, other counters start reaching zero too
+        List<Task> roots = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task.remaining.get() == 0) {
+                roots.add(task);
+            }
+        }
+        for (Task root : roots) {
+            pool.execute(new Worker(root, done, failure));
+        }
+
+        // a managed block lets the pool add a spare worker when run is itself called from a pool thread, such as
+        // from inside a parallel region, instead of starving the tasks this call is waiting for
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                @Override
+                public boolean block() throws InterruptedException {
+                    done.await();
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return done.getCount() == 0;
+                }
+            });
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for task graph", exc);
+        }
+
+        Throwable exc = failure.get();
+        if (exc instanceof RuntimeException) {
+            throw (RuntimeException) exc;
+        } else if (exc instanceof Error) {
+            throw (Error) exc;
+        } else if (exc != null) {
+            throw new IllegalStateException(exc);
+        }
+    }
+
+    public static final class Task {
+
+        private final String name;
+        private final int priority;
+        private final Runnable kernel;
+        private final List<Task> successors = new ArrayList<>(4);
+        private final AtomicInteger remaining = new AtomicInteger();
+
+        private Task(String name, int priority, Runnable kernel) {
+            this.name = name;
+            this.priority = priority;
+            this.kernel = kernel;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public int priority() {
+            return priority;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+    }
+
+    private static final class Worker extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Task task;
+        private final CountDownLatch done;
+        private final AtomicReference<Throwable> failure;
+
+        private Worker(Task task, CountDownLatch done, AtomicReference<Throwable> failure) {
+            this.task = task;
+            this.done = done;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            Task current = task;
+            while (current != null) {
+                if (failure.get() == null) {
+                    try {
+                        current.kernel.run();
+                    } catch (Throwable exc) {
+                        failure.compareAndSet(null, exc);
+                    }
+                }
+
+                List<Task> ready = new ArrayList<>(current.successors.size());
+                for (Task next : current.successors) {
+                    if (next.remaining.decrementAndGet() == 0) {
+                        ready.add(next);
+                    }
+                }
+                done.countDown();
+
+                // the most urgent ready task (a panel on the critical path) continues on this thread right
+                // away; the rest go to the local deque where idle workers can steal them
+                current = null;
+                if (!ready.isEmpty()) {
+                    ready.sort(Comparator.comparingInt(Task::priority));
+                    current = ready.remove(ready.size() - 1);
+                    for (Task next : ready) {
+                        new Worker(next, done, failure).fork();
+                    }
+                }
+            }
+        }
+
+    }
+
+}
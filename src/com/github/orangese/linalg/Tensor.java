@@ -0,0 +1,621 @@
+package com.github.orangese.linalg;
+
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.IntStream;
+
+// an n-d strided view of a flat double[]. transpose, permute, reshape and broadcastTo return views sharing the
+// array, and broadcast axes have stride 0, so elementwise ops and reductions over them never copy
+public class Tensor {
+
+    private static final long PARALLEL_THRESHOLD = 1 << 16;
+
+    private final double[] data;
+    private final int[] dims;
+    private final int[] strides;
+    private final int offset;
+
+    public Tensor(Shape shape) {
+        this(new double[shape.size()], shape.dims(), contiguousStrides(shape.dims()), 0);
+    }
+
+    public Tensor(double[] data, Shape shape) {
+        this(data.clone(), shape.dims(), contiguousStrides(shape.dims()), 0);
+        if (data.length != shape.size()) {
+            throw new IllegalArgumentException("cannot fill tensor with shape " + shape + " from " + data.length +
+                    " elements");
+        }
+    }
+
+    private Tensor(double[] data, int[] dims, int[] strides, int offset) {
+        this.data = data;
+        this.dims = dims;
+        this.strides = strides;
+        this.offset = offset;
+    }
+
+    public static Tensor of(Matrix mat) {
+        final double[] data = mat.isRowMajor() ? mat.data().clone() : mat.rowMajorData();
+        return new Tensor(data, new int[]{mat.rowDim(), mat.colDim()}, new int[]{mat.colDim(), 1}, 0);
+    }
+
+    // a (mats.length, rows, cols) batch of equally shaped matrices
+    public static Tensor stack(Matrix... mats) {
+        if (mats.length == 0) {
+            throw new IllegalArgumentException("cannot stack no matrices");
+        }
+        final int rows = mats[0].rowDim();
+        final int cols = mats[0].colDim();
+        double[] data = new double[mats.length * rows * cols];
+        for (int b = 0; b < mats.length; b++) {
+            if (!mats[b].shape().equals(mats[0].shape())) {
+                throw new IllegalArgumentException("cannot stack matrices with shapes " + mats[0].shape() +
+                        " and " + mats[b].shape());
+            }
+            System.arraycopy(mats[b].rowMajorData(), 0, data, b * rows * cols, rows * cols);
+        }
+        final int[] dims = {mats.length, rows, cols};
+        return new Tensor(data, dims, contiguousStrides(dims), 0);
+    }
+
+    public Matrix toMatrix() {
+        if (dims.length != 2) {
+            throw new UnsupportedOperationException("cannot convert tensor with shape " + shape() + " to matrix");
+        }
+        return Matrix.wrap(contiguousData(), new Shape(dims[0], dims[1]));
+    }
+
+    public Shape shape() {
+        return Shape.of(dims);
+    }
+
+    public int numAxes() {
+        return dims.length;
+    }
+
+    public int size() {
+        return volume(dims);
+    }
+
+    public double get(int... index) {
+        return data[offsetOf(index)];
+    }
+
+    public void set(double value, int... index) {
+        data[offsetOf(index)] = value;
+    }
+
+    public Tensor transpose() {
+        if (dims.length < 2) {
+            return this;
+        }
+        return transpose(-2, -1);
+    }
+
+    public Tensor transpose(int axis1, int axis2) {
+        int[] order = new int[dims.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        final int a = axis(axis1);
+        final int b = axis(axis2);
+        order[a] = b;
+        order[b] = a;
+        return permute(order);
+    }
+
+    public Tensor permute(int... order) {
+        if (order.length != dims.length) {
+            throw new IllegalArgumentException("permutation " + Arrays.toString(order) + " does not match shape " +
+                    shape());
+        }
+        int[] newDims = new int[dims.length];
+        int[] newStrides = new int[dims.length];
+        boolean[] seen = new boolean[dims.length];
+        for (int i = 0; i < order.length; i++) {
+            final int axis = axis(order[i]);
+            if (seen[axis]) {
+                throw new IllegalArgumentException("axis " + axis + " repeated in permutation " + Arrays.toString(order));
+            }
+            seen[axis] = true;
+            newDims[i] = dims[axis];
+            newStrides[i] = strides[axis];
+        }
+        return new Tensor(data, newDims, newStrides, offset);
+    }
+
+    // a view when the layout allows it, otherwise a reshaped copy; one dim may be -1 to be inferred
+    public Tensor reshape(int... newDims) {
+        newDims = newDims.clone();
+        int inferred = -1;
+        int known = 1;
+        for (int i = 0; i < newDims.length; i++) {
+            if (newDims[i] == -1 && inferred < 0) {
+                inferred = i;
+            } else if (newDims[i] < 0) {
+                throw new IllegalArgumentException("cannot reshape to " + Arrays.toString(newDims));
+            } else {
+                known *= newDims[i];
+            }
+        }
+        if (inferred >= 0) {
+            newDims[inferred] = known == 0 ? 0 : size() / known;
+        }
+        if (volume(newDims) != size()) {
+            throw new IllegalArgumentException("cannot reshape tensor with shape " + shape() + " to " +
+                    Arrays.toString(newDims));
+        }
+        if (isContiguous()) {
+            return new Tensor(data, newDims, contiguousStrides(newDims), offset);
+        }
+        return new Tensor(contiguousData(), newDims, contiguousStrides(newDims), 0);
+    }
+
+    // a read-only-in-spirit view where each size-1 or missing axis repeats through stride 0
+    public Tensor broadcastTo(Shape target) {
+        final int[] targetDims = target.dims();
+        if (!Arrays.equals(Shape.broadcast(dims, targetDims), targetDims)) {
+            throw new IllegalArgumentException("cannot broadcast tensor with shape " + shape() + " to " + target);
+        }
+        return new Tensor(data, targetDims, broadcastStrides(targetDims), offset);
+    }
+
+    public Tensor contiguous() {
+        return new Tensor(contiguousData(), dims.clone(), contiguousStrides(dims), 0);
+    }
+
+    public Tensor add(Tensor o) {
+        return combine(o, (x, y) -> x + y);
+    }
+
+    public Tensor subtract(Tensor o) {
+        return combine(o, (x, y) -> x - y);
+    }
+
+    // elementwise; see matmul for the matrix product
+    public Tensor mul(Tensor o) {
+        return combine(o, (x, y) -> x * y);
+    }
+
+    public Tensor div(Tensor o) {
+        return combine(o, (x, y) -> x / y);
+    }
+
+    public Tensor add(double o) {
+        return apply(x -> x + o);
+    }
+
+    public Tensor mul(double o) {
+        return apply(x -> x * o);
+    }
+
+    public Tensor apply(DoubleUnaryOperator op) {
+        double[] out = new double[size()];
+        final int[] outStrides = contiguousStrides(dims);
+        final int last = dims.length - 1;
+        final int step = strides[last];
+        forEachRun(dims, new int[][]{strides, outStrides}, new int[]{offset, 0}, (offs, length) -> {
+            int in = offs[0];
+            final int base = offs[1];
+            for (int t = 0; t < length; t++, in += step) {
+                out[base + t] = op.applyAsDouble(data[in]);
+            }
+        });
+        return new Tensor(out, dims.clone(), outStrides, 0);
+    }
+
+    // elementwise with numpy broadcasting; neither operand is expanded in memory
+    public Tensor combine(Tensor o, DoubleBinaryOperator op) {
+        final int[] outDims = Shape.broadcast(dims, o.dims);
+        final int[] outStrides = contiguousStrides(outDims);
+        double[] out = new double[volume(outDims)];
+        final double[] a = data;
+        final double[] b = o.data;
+
+        if (Arrays.equals(dims, o.dims) && isContiguous() && o.isContiguous()) {
+            for (int i = 0; i < out.length; i++) {
+                out[i] = op.applyAsDouble(a[offset + i], b[o.offset + i]);
+            }
+            return new Tensor(out, outDims, outStrides, 0);
+        }
+
+        final int[] sa = broadcastStrides(outDims);
+        final int[] sb = o.broadcastStrides(outDims);
+        final int last = outDims.length - 1;
+        forEachRun(outDims, new int[][]{sa, sb, outStrides}, new int[]{offset, o.offset, 0}, (offs, length) -> {
+            int ia = offs[0];
+            int ib = offs[1];
+            final int base = offs[2];
+            for (int t = 0; t < length; t++, ia += sa[last], ib += sb[last]) {
+                out[base + t] = op.applyAsDouble(a[ia], b[ib]);
+            }
+        });
+        return new Tensor(out, outDims, outStrides, 0);
+    }
+
+    // matrix product over the last two axes, broadcasting the leading (batch) axes. as in numpy, a 1-d left
+    // operand acts as a row and a 1-d right operand as a column, and the added axis is dropped from the result
+    public Tensor matmul(Tensor o) {
+        final Tensor a = dims.length == 1 ? new Tensor(data, new int[]{1, dims[0]}, new int[]{0, strides[0]}, offset) : this;
+        final Tensor b = o.dims.length == 1 ?
+                new Tensor(o.data, new int[]{o.dims[0], 1}, new int[]{o.strides[0], 0}, o.offset) : o;
+        final int m = a.dims[a.dims.length - 2];
+        final int k = a.dims[a.dims.length - 1];
+        final int n = b.dims[b.dims.length - 1];
+        if (k != b.dims[b.dims.length - 2]) {
+            throw new IllegalArgumentException(String.format(
+                    "cannot perform matrix multiplication between shapes %s and %s", shape(), o.shape()
+            ));
+        }
+
+        final int[] aBatch = Arrays.copyOf(a.dims, a.dims.length - 2);
+        final int[] bBatch = Arrays.copyOf(b.dims, b.dims.length - 2);
+        final int[] batch = Shape.broadcast(aBatch, bBatch);
+        final int batches = volume(batch);
+        final int[] aOffsets = batchOffsets(a, batch);
+        final int[] bOffsets = batchOffsets(b, batch);
+
+        int[] outDims = Arrays.copyOf(batch, batch.length + 2);
+        outDims[batch.length] = m;
+        outDims[batch.length + 1] = n;
+        final double[] out = new double[volume(outDims)];
+
+        final KernelMetrics.Probe probe = KernelMetrics.start(KernelMetrics.Kernel.MATMUL, m, n, k);
+        final IntStream range = IntStream.range(0, batches);
+        (batches > 1 && (long) batches * m * n * k >= PARALLEL_THRESHOLD ? range.parallel() : range).forEach(bi -> {
+            final double[] left = a.packMatrix(aOffsets[bi], m, k);
+            final int leftOff = left == a.data ? aOffsets[bi] : 0;
+            final double[] right = b.packMatrix(bOffsets[bi], k, n);
+            final int rightOff = right == b.data ? bOffsets[bi] : 0;
+            TileKernels.gemmBlocked(left, leftOff, k, right, rightOff, n, out, bi * m * n, n, m, n, k);
+        });
+        KernelMetrics.stop(probe, 2.0 * batches * m * n * k);
+
+        Tensor result = new Tensor(out, outDims, contiguousStrides(outDims), 0);
+        if (dims.length == 1 && o.dims.length == 1) {
+            return result.reshape(1);
+        } else if (dims.length == 1) {
+            return result.reshape(removeAxis(outDims, outDims.length - 2));
+        } else if (o.dims.length == 1) {
+            return result.reshape(removeAxis(outDims, outDims.length - 1));
+        }
+        return result;
+    }
+
+    public double sum() {
+        return sum(Reduction.getGlobalMode());
+    }
+
+    public double sum(Reduction.Mode mode) {
+        return sum(allAxes(), mode).data[0];
+    }
+
+    public Tensor sum(int... axes) {
+        return sum(axes, Reduction.getGlobalMode());
+    }
+
+    public Tensor sum(int[] axes, Reduction.Mode mode) {
+        if (mode == Reduction.Mode.FAST) {
+            return reduce(axes, 0, Double::sum);
+        }
+        // each output streams its reduced elements, in row-major order, through one accumulator straight from this
+        // view's strides, so broadcast views are never expanded and the bits match Reduction.sum of a packed copy
+        final boolean[] reduced = reducedAxes(axes);
+        final int[] outDims = keptDims(reduced);
+        final int[] keptStrides = new int[outDims.length];
+        int numReduced = 0;
+        for (boolean r : reduced) {
+            numReduced += r ? 1 : 0;
+        }
+        // with nothing reduced each output sums a single element
+        final int[] reducedDims = new int[Math.max(numReduced, 1)];
+        final int[] reducedStrides = new int[reducedDims.length];
+        reducedDims[0] = 1;
+        for (int i = 0, k = 0, r = 0; i < dims.length; i++) {
+            if (reduced[i]) {
+                reducedDims[r] = dims[i];
+                reducedStrides[r++] = strides[i];
+            } else {
+                keptStrides[k++] = strides[i];
+            }
+        }
+        final int[] outStrides = contiguousStrides(outDims);
+        double[] out = new double[volume(outDims)];
+        final Reduction.Accumulator acc = new Reduction.Accumulator(mode);
+        final int keptStep = keptStrides[keptStrides.length - 1];
+        final int reducedStep = reducedStrides[reducedStrides.length - 1];
+        final Run add = (offs, length) -> {
+            int in = offs[0];
+            for (int t = 0; t < length; t++, in += reducedStep) {
+                acc.add(data[in]);
+            }
+        };
+        forEachRun(outDims, new int[][]{keptStrides, outStrides}, new int[]{offset, 0}, (offs, length) -> {
+            int base = offs[0];
+            final int at = offs[1];
+            for (int t = 0; t < length; t++, base += keptStep) {
+                forEachRun(reducedDims, new int[][]{reducedStrides}, new int[]{base}, add);
+                out[at + t] = acc.finish();
+            }
+        });
+        return new Tensor(out, outDims, outStrides, 0);
+    }
+
+    public Tensor mean(int... axes) {
+        return mean(axes, Reduction.getGlobalMode());
+    }
+
+    public Tensor mean(int[] axes, Reduction.Mode mode) {
+        Tensor sum = sum(axes, mode);
+        return sum.mul((double) sum.size() / size());
+    }
+
+    public Tensor max(int... axes) {
+        return reduce(axes, Double.NEGATIVE_INFINITY, Math::max);
+    }
+
+    public Tensor min(int... axes) {
+        return reduce(axes, Double.POSITIVE_INFINITY, Math::min);
+    }
+
+    // folds the given axes away by walking this view's own strides, so broadcast views are reduced in place.
+    // reducing every axis leaves a single element of shape (1)
+    private Tensor reduce(int[] axes, double identity, DoubleBinaryOperator op) {
+        final boolean[] reduced = reducedAxes(axes);
+        final int[] outDims = keptDims(reduced);
+        final int[] outContiguous = contiguousStrides(outDims);
+        int[] outStrides = new int[dims.length];
+        for (int i = 0, j = 0; i < dims.length; i++) {
+            outStrides[i] = reduced[i] ? 0 : outContiguous[j++];
+        }
+
+        double[] out = new double[volume(outDims)];
+        Arrays.fill(out, identity);
+        final int last = dims.length - 1;
+        final int step = strides[last];
+        final int outStep = outStrides[last];
+        forEachRun(dims, new int[][]{strides, outStrides}, new int[]{offset, 0}, (offs, length) -> {
+            int in = offs[0];
+            int at = offs[1];
+            for (int t = 0; t < length; t++, in += step, at += outStep) {
+                out[at] = op.applyAsDouble(out[at], data[in]);
+            }
+        });
+        return new Tensor(out, outDims, outContiguous, 0);
+    }
+
+    private boolean[] reducedAxes(int[] axes) {
+        boolean[] reduced = new boolean[dims.length];
+        for (int axis : axes) {
+            reduced[axis(axis)] = true;
+        }
+        return reduced;
+    }
+
+    // the dims that survive a reduction, or (1) when none do
+    private int[] keptDims(boolean[] reduced) {
+        int kept = 0;
+        for (boolean r : reduced) {
+            kept += r ? 0 : 1;
+        }
+        int[] outDims = new int[Math.max(kept, 1)];
+        outDims[0] = 1;
+        for (int i = 0, j = 0; i < dims.length; i++) {
+            if (!reduced[i]) {
+                outDims[j++] = dims[i];
+            }
+        }
+        return outDims;
+    }
+
+    // offsets of the start of each batch's matrix, in row-major batch order
+    private static int[] batchOffsets(Tensor t, int[] batch) {
+        final int[] batchStrides = Arrays.copyOf(t.broadcastStrides(concat(batch, t.dims[t.dims.length - 2],
+                t.dims[t.dims.length - 1])), batch.length);
+        int[] offsets = new int[volume(batch)];
+        if (batch.length == 0) {
+            offsets[0] = t.offset;
+            return offsets;
+        }
+        final int[] counter = {0};
+        final int last = batch.length - 1;
+        forEachRun(batch, new int[][]{batchStrides}, new int[]{t.offset}, (offs, length) -> {
+            int at = offs[0];
+            for (int i = 0; i < length; i++, at += batchStrides[last]) {
+                offsets[counter[0]++] = at;
+            }
+        });
+        return offsets;
+    }
+
+    // the rows x cols matrix at off, as the backing array itself when already row-major or a packed copy
+    private double[] packMatrix(int off, int rows, int cols) {
+        final int rowStride = strides[dims.length - 2];
+        final int colStride = strides[dims.length - 1];
+        if ((cols == 1 || colStride == 1) && (rows == 1 || rowStride == cols)) {
+            return data;
+        }
+        double[] packed = new double[rows * cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                packed[i * cols + j] = data[off + i * rowStride + j * colStride];
+            }
+        }
+        return packed;
+    }
+
+    private boolean isContiguous() {
+        final int[] expected = contiguousStrides(dims);
+        for (int i = 0; i < dims.length; i++) {
+            if (dims[i] != 1 && strides[i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double[] contiguousData() {
+        if (isContiguous() && offset == 0 && data.length == size()) {
+            return data.clone();
+        }
+        double[] out = new double[size()];
+        final int last = dims.length - 1;
+        final int step = strides[last];
+        forEachRun(dims, new int[][]{strides, contiguousStrides(dims)}, new int[]{offset, 0}, (offs, length) -> {
+            int in = offs[0];
+            for (int t = 0; t < length; t++, in += step) {
+                out[offs[1] + t] = data[in];
+            }
+        });
+        return out;
+    }
+
+    // this tensor's strides aligned to the trailing axes of target, with 0 wherever it is broadcast
+    private int[] broadcastStrides(int[] target) {
+        int[] result = new int[target.length];
+        final int shift = target.length - dims.length;
+        for (int i = shift; i < target.length; i++) {
+            result[i] = dims[i - shift] == 1 && target[i] != 1 ? 0 : strides[i - shift];
+        }
+        return result;
+    }
+
+    private int offsetOf(int[] index) {
+        if (index.length != dims.length) {
+            throw new IllegalArgumentException("index " + Arrays.toString(index) + " does not match shape " + shape());
+        }
+        int at = offset;
+        for (int i = 0; i < index.length; i++) {
+            int idx = index[i];
+            if (idx < -dims[i] || idx >= dims[i]) {
+                throw new ArrayIndexOutOfBoundsException(String.format(
+                        "index %d out of range for axis %d of length %d", idx, i, dims[i]
+                ));
+            }
+            // negative indexes are supported
+            if (idx < 0) {
+                idx += dims[i];
+            }
+            at += idx * strides[i];
+        }
+        return at;
+    }
+
+    private int axis(int axis) {
+        if (axis < -dims.length || axis >= dims.length) {
+            throw new IllegalArgumentException("axis " + axis + " out of range for shape " + shape());
+        }
+        return axis < 0 ? axis + dims.length : axis;
+    }
+
+    private int[] allAxes() {
+        int[] axes = new int[dims.length];
+        for (int i = 0; i < axes.length; i++) {
+            axes[i] = i;
+        }
+        return axes;
+    }
+
+    private interface Run {
+
+        void apply(int[] offsets, int length);
+
+    }
+
+    // visits dims in row-major order, handing each stretch along the last axis to run along with the offsets
+    // where it starts under every stride set
+    private static void forEachRun(int[] dims, int[][] strides, int[] start, Run run) {
+        for (int dim : dims) {
+            if (dim == 0) {
+                return;
+            }
+        }
+        final int last = dims.length - 1;
+        int[] index = new int[dims.length];
+        int[] offsets = start.clone();
+        while (true) {
+            run.apply(offsets, dims[last]);
+            int axis = last - 1;
+            for (; axis >= 0; axis--) {
+                index[axis]++;
+                for (int s = 0; s < strides.length; s++) {
+                    offsets[s] += strides[s][axis];
+                }
+                if (index[axis] < dims[axis]) {
+                    break;
+                }
+                for (int s = 0; s < strides.length; s++) {
+                    offsets[s] -= strides[s][axis] * dims[axis];
+                }
+                index[axis] = 0;
+            }
+            if (axis < 0) {
+                return;
+            }
+        }
+    }
+
+    private static int[] contiguousStrides(int[] dims) {
+        int[] strides = new int[dims.length];
+        int stride = 1;
+        for (int i = dims.length - 1; i >= 0; i--) {
+            strides[i] = stride;
+            stride *= dims[i];
+        }
+        return strides;
+    }
+
+    private static int volume(int[] dims) {
+        int volume = 1;
+        for (int dim : dims) {
+            volume *= dim;
+        }
+        return volume;
+    }
+
+    private static int[] concat(int[] dims, int... more) {
+        int[] result = Arrays.copyOf(dims, dims.length + more.length);
+        System.arraycopy(more, 0, result, dims.length, more.length);
+        return result;
+    }
+
+    private static int[] removeAxis(int[] dims, int axis) {
+        int[] result = new int[dims.length - 1];
+        for (int i = 0, j = 0; i < dims.length; i++) {
+            if (i != axis) {
+                result[j++] = dims[i];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        append(result, 0, offset, Matrix.getPrintPrecision());
+        return result.toString();
+    }
+
+    private void append(StringBuilder result, int axis, int at, int precision) {
+        result.append("[");
+        for (int i = 0; i < dims[axis]; i++) {
+            if (i > 0) {
+                result.append(axis == dims.length - 1 ? ", " : ",\n" + indent(axis + 1));
+            }
+            if (axis == dims.length - 1) {
+                MatrixIO.appendFixed(result, data[at + i * strides[axis]], precision);
+            } else {
+                append(result, axis + 1, at + i * strides[axis], precision);
+            }
+        }
+        result.append("]");
+    }
+
+    private static String indent(int depth) {
+        char[] spaces = new char[depth];
+        Arrays.fill(spaces, ' ');
+        return new String(spaces);
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.github.orangese.linalg;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+public class TileCache {
+
+    private final int capacity;
+    private final LinkedHashMap<Key, Entry> tiles;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long bytesRead;
+    private long bytesWritten;
+
+    public TileCache(int capacity) {
+        if (capacity < 4) {
+            throw new IllegalArgumentException("tile cache must hold at least 4 tiles");
+        }
+        this.capacity = capacity;
+        this.tiles = new LinkedHashMap<>(capacity * 2, 0.75f, true);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized long bytesRead() {
+        return bytesRead;
+    }
+
+    public synchronized long bytesWritten() {
+        return bytesWritten;
+    }
+
+    synchronized double[] acquire(TiledMatrix owner, int tileRow, int tileCol) {
+        Key key = new Key(owner, tileRow, tileCol);
+        Entry entry = tiles.get(key);
+        if (entry == null) {
+            misses++;
+            evict(capacity - 1);
+            entry = new Entry(new double[owner.tileSize() * owner.tileSize()]);
+            owner.store().read(tileRow, tileCol, entry.data);
+            bytesRead += owner.store().tileBytes();
+            tiles.put(key, entry);
+        } else {
+            hits++;
+        }
+        entry.pins++;
+        return entry.data;
+    }
+
+    synchronized void release(TiledMatrix owner, int tileRow, int tileCol, boolean dirty) {
+        Entry entry = tiles.get(new Key(owner, tileRow, tileCol));
+        if (entry == null || entry.pins == 0) {
+            throw new IllegalStateException("tile (" + tileRow + ", " + tileCol + ") is not pinned");
+        }
+        entry.pins--;
+        entry.dirty |= dirty;
+        if (tiles.size() > capacity) {
+            evict(capacity);
+        }
+    }
+
+    synchronized void flush(TiledMatrix owner) {
+        for (Map.Entry<Key, Entry> e : tiles.entrySet()) {
+            if (e.getKey().owner == owner && e.getValue().dirty) {
+                writeBack(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    synchronized void drop(TiledMatrix owner) {
+        flush(owner);
+        tiles.keySet().removeIf(key -> key.owner == owner);
+    }
+
+    private void evict(int target) {
+        // least recently used first, skipping tiles that a kernel currently holds
+        Iterator<Map.Entry<Key, Entry>> it = tiles.entrySet().iterator();
+        while (tiles.size() > target && it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getValue().pins == 0) {
+                if (e.getValue().dirty) {
+                    writeBack(e.getKey(), e.getValue());
+                }
+                it.remove();
+                evictions++;
+            }
+        }
+    }
+
+    private void writeBack(Key key, Entry entry) {
+        key.owner.store().write(key.tileRow, key.tileCol, entry.data);
+        bytesWritten += key.owner.store().tileBytes();
+        entry.dirty = false;
+    }
+
+    private static final class Entry {
+
+        private final double[] data;
+        private int pins;
+        private boolean dirty;
+
+        private Entry(double[] data) {
+            this.data = data;
+        }
+
+    }
+
+    private static final class Key {
+
+        private final TiledMatrix owner;
+        private final int tileRow;
+        private final int tileCol;
+
+        private Key(TiledMatrix owner, int tileRow, int tileCol) {
+            this.owner = owner;
+            this.tileRow = tileRow;
+            this.tileCol = tileCol;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return owner == key.owner && tileRow == key.tileRow && tileCol == key.tileCol;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(owner), tileRow, tileCol);
+        }
+
+    }
+
+}
@@ -0,0 +1,263 @@
+package com.github.orangese.linalg;
+
+final class TileKernels {
+
+    private static final int GEMM_K_BLOCK = 128;
+    private static final int GEMM_N_BLOCK = 256;
+
+    private TileKernels() { }
+
+    // c[m x n] += alpha * a[m x k] * b[k x n], all row-major with explicit offsets and leading dims
+    static void gemm(double alpha, double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                     double[] c, int cOff, int ldc, int m, int n, int k) {
+        for (int i = 0; i < m; i++) {
+            final int cRow = cOff + i * ldc;
+            final int aRow = aOff + i * lda;
+            for (int p = 0; p < k; p++) {
+                final double aip = alpha * a[aRow + p];
+                if (aip == 0) {
+                    continue;
+                }
+                final int bRow = bOff + p * ldb;
+                for (int j = 0; j < n; j++) {
+                    c[cRow + j] += aip * b[bRow + j];
+                }
+            }
+        }
+    }
+
+    // c[m x n] += a[m x k] * b[k x n] in cache-sized panels of b; each c[i][j] still sums over k in order,
+    // and zeros are not skipped, so results match the plain triple loop bit for bit, infinities and nans included
+    static void gemmBlocked(double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                            double[] c, int cOff, int ldc, int m, int n, int k) {
+        for (int p0 = 0; p0 < k; p0 += GEMM_K_BLOCK) {
+            final int p1 = Math.min(k, p0 + GEMM_K_BLOCK);
+            for (int j0 = 0; j0 < n; j0 += GEMM_N_BLOCK) {
+                final int j1 = Math.min(n, j0 + GEMM_N_BLOCK);
+                for (int i = 0; i < m; i++) {
+                    final int cRow = cOff + i * ldc;
+                    final int aRow = aOff + i * lda;
+                    for (int p = p0; p < p1; p++) {
+                        final double aip = a[aRow + p];
+                        final int bRow = bOff + p * ldb;
+                        for (int j = j0; j < j1; j++) {
+                            c[cRow + j] += aip * b[bRow + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // solves L * X = B in place for unit lower triangular L[m x m], B[m x n]
+    static void trsmLowerUnit(double[] l, int lOff, int ldl, double[] b, int bOff, int ldb, int m, int n) {
+        for (int i = 1; i < m; i++) {
+            final int bRow = bOff + i * ldb;
+            for (int p = 0; p < i; p++) {
+                final double lip = l[lOff + i * ldl + p];
+                if (lip == 0) {
+                    continue;
+                }
+                final int pRow = bOff + p * ldb;
+                for (int j = 0; j < n; j++) {
+                    b[bRow + j] -= lip * b[pRow + j];
+                }
+            }
+        }
+    }
+
+    // solves U * X = B in place for upper triangular U[m x m], B[m x n]
+    static void trsmUpper(double[] u, int uOff, int ldu, double[] b, int bOff, int ldb, int m, int n) {
+        for (int i = m - 1; i >= 0; i--) {
+            final int bRow = bOff + i * ldb;
+            for (int p = i + 1; p < m; p++) {
+                final double uip = u[uOff + i * ldu + p];
+                if (uip == 0) {
+                    continue;
+                }
+                final int pRow = bOff + p * ldb;
+                for (int j = 0; j < n; j++) {
+                    b[bRow + j] -= uip * b[pRow + j];
+                }
+            }
+            final double diag = u[uOff + i * ldu + i];
+            for (int j = 0; j < n; j++) {
+                b[bRow + j] /= diag;
+            }
+        }
+    }
+
+    // partial pivoting LU of a tall panel[m x n]; pivots[j] receives the panel row swapped with row j
+    static boolean getrf(double[] a, int off, int ld, int m, int n, int[] pivots, double eps) {
+        boolean singular = false;
+        for (int j = 0; j < Math.min(m, n); j++) {
+            int max = j;
+            double largest = Math.abs(a[off + j * ld + j]);
+            for (int i = j + 1; i < m; i++) {
+                final double abs = Math.abs(a[off + i * ld + j]);
+                if (abs > largest) {
+                    largest = abs;
+                    max = i;
+                }
+            }
+
+            pivots[j] = max;
+            if (max != j) {
+                swapRows(a, off + j * ld, a, off + max * ld, n);
+            }
+
+            final double diag = a[off + j * ld + j];
+            if (largest < eps) {
+                singular = true;
+            }
+            if (diag == 0) {
+                continue;
+            }
+
+            final int pivotRow = off + j * ld;
+            for (int i = j + 1; i < m; i++) {
+                final int row = off + i * ld;
+                final double factor = a[row + j] /= diag;
+                if (factor == 0) {
+                    continue;
+                }
+                for (int k = j + 1; k < n; k++) {
+                    a[row + k] -= factor * a[pivotRow + k];
+                }
+            }
+        }
+        return singular;
+    }
+
+    // c[m x n] += alpha * a[m x k] * b[n x k]^T
+    static void gemmNT(double alpha, double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                       double[] c, int cOff, int ldc, int m, int n, int k) {
+        for (int i = 0; i < m; i++) {
+            final int aRow = aOff + i * lda;
+            final int cRow = cOff + i * ldc;
+            for (int j = 0; j < n; j++) {
+                final int bRow = bOff + j * ldb;
+                double sum = 0;
+                for (int p = 0; p < k; p++) {
+                    sum += a[aRow + p] * b[bRow + p];
+                }
+                c[cRow + j] += alpha * sum;
+            }
+        }
+    }
+
+    // upper triangle of c[n x n] += alpha * a[k x n]^T * a[k x n]; the strict lower triangle is never touched
+    static void syrkUpperTrans(double alpha, double[] a, int aOff, int lda, double[] c, int cOff, int ldc,
+                               int n, int k) {
+        for (int p = 0; p < k; p++) {
+            final int aRow = aOff + p * lda;
+            for (int i = 0; i < n; i++) {
+                final double api = alpha * a[aRow + i];
+                if (api == 0) {
+                    continue;
+                }
+                final int cRow = cOff + i * ldc;
+                for (int j = i; j < n; j++) {
+                    c[cRow + j] += api * a[aRow + j];
+                }
+            }
+        }
+    }
+
+    // overwrites the lower triangle of a[n x n] with its cholesky factor; false if not positive definite
+    static boolean potrf(double[] a, int off, int ld, int n) {
+        for (int j = 0; j < n; j++) {
+            final int jRow = off + j * ld;
+            double diag = a[jRow + j];
+            for (int p = 0; p < j; p++) {
+                diag -= a[jRow + p] * a[jRow + p];
+            }
+            if (!(diag > 0)) {
+                return false;
+            }
+            diag = Math.sqrt(diag);
+            a[jRow + j] = diag;
+
+            for (int i = j + 1; i < n; i++) {
+                final int iRow = off + i * ld;
+                double sum = a[iRow + j];
+                for (int p = 0; p < j; p++) {
+                    sum -= a[iRow + p] * a[jRow + p];
+                }
+                a[iRow + j] = sum / diag;
+            }
+        }
+        return true;
+    }
+
+    // solves X * L^T = B in place for lower triangular L[n x n], B[m x n]
+    static void trsmRightLowerTrans(double[] l, int lOff, int ldl, double[] b, int bOff, int ldb, int m, int n) {
+        for (int i = 0; i < m; i++) {
+            final int bRow = bOff + i * ldb;
+            for (int j = 0; j < n; j++) {
+                final int lRow = lOff + j * ldl;
+                double sum = b[bRow + j];
+                for (int p = 0; p < j; p++) {
+                    sum -= b[bRow + p] * l[lRow + p];
+                }
+                b[bRow + j] = sum / l[lRow + j];
+            }
+        }
+    }
+
+    // householder QR of a tall panel[m x n]: R on and above the diagonal, unit-leading reflectors below it
+    static void geqrf(double[] a, int off, int ld, int m, int n, double[] tau, int tauOff) {
+        for (int j = 0; j < Math.min(m, n); j++) {
+            final int top = off + j * ld + j;
+            double norm = 0;
+            for (int i = j + 1; i < m; i++) {
+                final double val = a[off + i * ld + j];
+                norm += val * val;
+            }
+
+            if (norm == 0) {
+                tau[tauOff + j] = 0;
+                continue;
+            }
+
+            final double x0 = a[top];
+            final double beta = -Math.copySign(Math.sqrt(x0 * x0 + norm), x0);
+            final double scale = 1 / (x0 - beta);
+            for (int i = j + 1; i < m; i++) {
+                a[off + i * ld + j] *= scale;
+            }
+            tau[tauOff + j] = (beta - x0) / beta;
+            a[top] = beta;
+
+            applyReflector(a, off + j * ld + j, ld, m - j, tau[tauOff + j], a, off + j * ld + j + 1, ld, n - j - 1);
+        }
+    }
+
+    // applies H^T = I - tau v v^T to c[m x n], where v[m] is stored down a column with an implicit leading 1
+    static void applyReflector(double[] v, int vOff, int ldv, int m, double tau,
+                               double[] c, int cOff, int ldc, int n) {
+        if (tau == 0) {
+            return;
+        }
+        for (int k = 0; k < n; k++) {
+            double dot = c[cOff + k];
+            for (int i = 1; i < m; i++) {
+                dot += v[vOff + i * ldv] * c[cOff + i * ldc + k];
+            }
+            dot *= tau;
+            c[cOff + k] -= dot;
+            for (int i = 1; i < m; i++) {
+                c[cOff + i * ldc + k] -= dot * v[vOff + i * ldv];
+            }
+        }
+    }
+
+    static void swapRows(double[] a, int aOff, double[] b, int bOff, int length) {
+        for (int k = 0; k < length; k++) {
+            final double tmp = a[aOff + k];
+            a[aOff + k] = b[bOff + k];
+            b[bOff + k] = tmp;
+        }
+    }
+
+}
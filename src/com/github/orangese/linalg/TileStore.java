@@ -0,0 +1,96 @@
+package com.github.orangese.linalg;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+final class TileStore implements Closeable {
+
+    private final FileChannel channel;
+    private final int tileCols;
+    private final long tileBytes;
+    // one tile of staging space for positional reads and writes. mapping each tile instead cost an mmap per
+    // access and left every mapping alive until gc, which large out-of-core inputs can run out of
+    private final ByteBuffer buffer;
+    private final DoubleBuffer doubles;
+
+    TileStore(Path file, int tileRows, int tileCols, int tileSize, boolean create) throws IOException {
+        this.channel = create ?
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE) :
+                FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.tileCols = tileCols;
+        this.tileBytes = (long) tileSize * tileSize * Double.BYTES;
+        this.buffer = ByteBuffer.allocateDirect(Math.toIntExact(tileBytes)).order(ByteOrder.nativeOrder());
+        this.doubles = buffer.asDoubleBuffer();
+
+        long expected = tileBytes * tileRows * tileCols;
+        if (create) {
+            // sparse on every filesystem we care about, so untouched tiles read back as zeros
+            channel.write(ByteBuffer.allocate(1), expected - 1);
+        } else if (channel.size() != expected) {
+            long actual = channel.size();
+            channel.close();
+            throw new IllegalArgumentException("tile file " + file + " has size " + actual +
+                    " but expected " + expected);
+        }
+    }
+
+    long tileBytes() {
+        return tileBytes;
+    }
+
+    synchronized void read(int tileRow, int tileCol, double[] dest) {
+        try {
+            buffer.clear();
+            final long offset = offset(tileRow, tileCol);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("unexpected end of tile file at tile (" + tileRow + ", " + tileCol + ")");
+                }
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+        doubles.clear();
+        doubles.get(dest);
+    }
+
+    synchronized void write(int tileRow, int tileCol, double[] src) {
+        doubles.clear();
+        doubles.put(src);
+        try {
+            buffer.clear();
+            final long offset = offset(tileRow, tileCol);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    void force() {
+        try {
+            channel.force(false);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    private long offset(int tileRow, int tileCol) {
+        return ((long) tileRow * tileCols + tileCol) * tileBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
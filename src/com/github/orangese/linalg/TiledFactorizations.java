@@ -0,0 +1,236 @@
+package com.github.orangese.linalg;
+
+import java.util.concurrent.ForkJoinPool;
+
+import com.github.orangese.linalg.TaskGraph.Task;
+
+public final class TiledFactorizations {
+
+    public static final int DEFAULT_TILE_SIZE = 64;
+
+    private static final int PANEL = 3;
+    private static final int LOOKAHEAD = 2;
+    private static final int UPDATE = 1;
+
+    private TiledFactorizations() { }
+
+    public static LUPDecomp lu(Matrix mat) {
+        return lu(mat, DEFAULT_TILE_SIZE, ForkJoinPool.commonPool());
+    }
+
+    public static LUPDecomp lu(Matrix mat, int tileSize, ForkJoinPool pool) {
+        if (!mat.isSquare()) {
+            throw new IllegalArgumentException("cannot perform tiled LU on nonsquare matrix with shape " +
+                    mat.shape());
+        }
+        checkTileSize(tileSize);
+
+        final Matrix decomp = new Matrix(mat);
+        final double[] a = decomp.data();
+        final int n = mat.rowDim();
+        final int nt = ceilDiv(n, tileSize);
+        final int[][] pivots = new int[nt][];
+        final double threshold = LUPDecomp.pivotThreshold(decomp, LUPDecomp.DEFAULT_TOL);
+        final boolean[] singular = new boolean[nt];
+
+        TaskGraph graph = new TaskGraph();
+        Task[][] last = new Task[nt][nt];
+
+        for (int k = 0; k < nt; k++) {
+            final int kk = k;
+            final int k0 = k * tileSize;
+            final int w = Math.min(tileSize, n - k0);
+
+            Task[] panelDeps = new Task[nt - k];
+            for (int i = k; i < nt; i++) {
+                panelDeps[i - k] = last[i][k];
+            }
+            Task panel = graph.add("getrf(" + k + ")", PANEL, () -> {
+                pivots[kk] = new int[w];
+                singular[kk] = TileKernels.getrf(a, k0 * n + k0, n, n - k0, w, pivots[kk], threshold);
+            }, panelDeps);
+            for (int i = k; i < nt; i++) {
+                last[i][k] = panel;
+            }
+
+            for (int j = k + 1; j < nt; j++) {
+                final int j0 = j * tileSize;
+                final int wj = Math.min(tileSize, n - j0);
+
+                // the swaps read every row below the panel, so they wait for the whole column to be updated
+                Task[] deps = new Task[nt - k + 1];
+                deps[0] = panel;
+                for (int i = k; i < nt; i++) {
+                    deps[i - k + 1] = last[i][j];
+                }
+                Task trsm = graph.add("trsm(" + k + ", " + j + ")", j == k + 1 ? LOOKAHEAD : UPDATE, () -> {
+                    applySwaps(a, n, k0, pivots[kk], j0, wj);
+                    TileKernels.trsmLowerUnit(a, k0 * n + k0, n, a, k0 * n + j0, n, w, wj);
+                }, deps);
+                for (int i = k; i < nt; i++) {
+                    last[i][j] = trsm;
+                }
+            }
+
+            for (int j = k + 1; j < nt; j++) {
+                final int j0 = j * tileSize;
+                final int wj = Math.min(tileSize, n - j0);
+                for (int i = k + 1; i < nt; i++) {
+                    final int i0 = i * tileSize;
+                    final int hi = Math.min(tileSize, n - i0);
+                    last[i][j] = graph.add("gemm(" + i + ", " + j + ", " + k + ")", j == k + 1 ? LOOKAHEAD : UPDATE,
+                            () -> TileKernels.gemm(-1, a, i0 * n + k0, n, a, k0 * n + j0, n, a, i0 * n + j0, n,
+                                    hi, wj, w),
+                            panel, last[i][j]);
+                }
+            }
+        }
+        graph.run(pool);
+
+        // later panels also permute the rows of the finished L columns to their left; those swaps have no
+        // consumers inside the factorization, so they are applied once at the end, one task per column
+        TaskGraph swaps = new TaskGraph();
+        for (int j = 0; j < nt - 1; j++) {
+            final int j0 = j * tileSize;
+            final int wj = Math.min(tileSize, n - j0);
+            swaps.add("laswp(" + j + ")", UPDATE, () -> {
+                for (int k = j0 / tileSize + 1; k < nt; k++) {
+                    applySwaps(a, n, k * tileSize, pivots[k], j0, wj);
+                }
+            });
+        }
+        swaps.run(pool);
+
+        int[] permArray = new int[n];
+        for (int i = 0; i < n; i++) {
+            permArray[i] = i;
+        }
+        int numPermutations = 0;
+        boolean isSingular = false;
+        for (int k = 0; k < nt; k++) {
+            isSingular |= singular[k];
+            for (int t = 0; t < pivots[k].length; t++) {
+                final int row = k * tileSize + t;
+                final int max = k * tileSize + pivots[k][t];
+                if (max != row) {
+                    int tmp = permArray[max];
+                    permArray[max] = permArray[row];
+                    permArray[row] = tmp;
+                    numPermutations++;
+                }
+            }
+        }
+
+        return new LUPDecomp(mat, decomp, permArray, numPermutations, isSingular, LUPDecomp.DEFAULT_TOL);
+    }
+
+    public static CholeskyDecomp cholesky(Matrix mat) {
+        return new CholeskyDecomp(mat);
+    }
+
+    public static CholeskyDecomp cholesky(Matrix mat, int tileSize, ForkJoinPool pool) {
+        return new CholeskyDecomp(mat, tileSize, pool);
+    }
+
+    public static QRDecomp qr(Matrix mat) {
+        return new QRDecomp(mat);
+    }
+
+    public static QRDecomp qr(Matrix mat, int tileSize, ForkJoinPool pool) {
+        return new QRDecomp(mat, tileSize, pool);
+    }
+
+    // overwrites the lower triangle of a[n x n] with L; the strict upper triangle is never read
+    static void factorCholesky(double[] a, int n, int tileSize, ForkJoinPool pool) {
+        checkTileSize(tileSize);
+        final int nt = ceilDiv(n, tileSize);
+
+        TaskGraph graph = new TaskGraph();
+        Task[][] last = new Task[nt][nt];
+
+        for (int k = 0; k < nt; k++) {
+            final int k0 = k * tileSize;
+            final int w = Math.min(tileSize, n - k0);
+
+            Task potrf = graph.add("potrf(" + k + ")", PANEL, () -> {
+                if (!TileKernels.potrf(a, k0 * n + k0, n, w)) {
+                    throw new ArithmeticException("matrix is not positive definite");
+                }
+            }, last[k][k]);
+            last[k][k] = potrf;
+
+            for (int i = k + 1; i < nt; i++) {
+                final int i0 = i * tileSize;
+                final int hi = Math.min(tileSize, n - i0);
+                last[i][k] = graph.add("trsm(" + i + ", " + k + ")", i == k + 1 ? LOOKAHEAD : UPDATE,
+                        () -> TileKernels.trsmRightLowerTrans(a, k0 * n + k0, n, a, i0 * n + k0, n, hi, w),
+                        potrf, last[i][k]);
+            }
+
+            for (int j = k + 1; j < nt; j++) {
+                final int j0 = j * tileSize;
+                final int wj = Math.min(tileSize, n - j0);
+                for (int i = j; i < nt; i++) {
+                    final int i0 = i * tileSize;
+                    final int hi = Math.min(tileSize, n - i0);
+                    last[i][j] = graph.add((i == j ? "syrk(" : "gemm(") + i + ", " + j + ", " + k + ")",
+                            j == k + 1 ? LOOKAHEAD : UPDATE,
+                            () -> TileKernels.gemmNT(-1, a, i0 * n + k0, n, a, j0 * n + k0, n, a, i0 * n + j0, n,
+                                    hi, wj, w),
+                            last[i][k], last[j][k], last[i][j]);
+                }
+            }
+        }
+        graph.run(pool);
+    }
+
+    // householder QR of a[m x n] in place, m >= n; reflector scalars go to tau[n]
+    static void factorQR(double[] a, int m, int n, double[] tau, int tileSize, ForkJoinPool pool) {
+        checkTileSize(tileSize);
+        final int nt = ceilDiv(n, tileSize);
+
+        TaskGraph graph = new TaskGraph();
+        Task[] last = new Task[nt];
+
+        for (int k = 0; k < nt; k++) {
+            final int k0 = k * tileSize;
+            final int w = Math.min(tileSize, n - k0);
+
+            Task panel = graph.add("geqrf(" + k + ")", PANEL,
+                    () -> TileKernels.geqrf(a, k0 * n + k0, n, m - k0, w, tau, k0), last[k]);
+            last[k] = panel;
+
+            for (int j = k + 1; j < nt; j++) {
+                final int j0 = j * tileSize;
+                final int wj = Math.min(tileSize, n - j0);
+                last[j] = graph.add("ormqr(" + k + ", " + j + ")", j == k + 1 ? LOOKAHEAD : UPDATE, () -> {
+                    for (int t = 0; t < w; t++) {
+                        final int row = k0 + t;
+                        TileKernels.applyReflector(a, row * n + row, n, m - row, tau[row], a, row * n + j0, n, wj);
+                    }
+                }, panel, last[j]);
+            }
+        }
+        graph.run(pool);
+    }
+
+    private static void applySwaps(double[] a, int ld, int rowOffset, int[] pivots, int colOffset, int width) {
+        for (int t = 0; t < pivots.length; t++) {
+            if (pivots[t] != t) {
+                TileKernels.swapRows(a, (rowOffset + t) * ld + colOffset, a, (rowOffset + pivots[t]) * ld + colOffset,
+                        width);
+            }
+        }
+    }
+
+    private static void checkTileSize(int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("tileSize must be an int greater than 0");
+        }
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+
+}
@@ -0,0 +1,278 @@
+package com.github.orangese.linalg;
+
+public class TiledLUPDecomp {
+
+    private final TiledMatrix decomp;
+    private final int[] permArray;
+    private final double threshold;
+    private int numPermutations;
+    private boolean singular;
+
+    // factors mat in place: afterwards its tiles hold L below the diagonal and U on and above it
+    public TiledLUPDecomp(TiledMatrix mat) {
+        this(mat, LUPDecomp.DEFAULT_TOL);
+    }
+
+    // pivots smaller than tol * max|mat| count as zero, the same relative test as LUPDecomp
+    public TiledLUPDecomp(TiledMatrix mat, double tol) {
+        if (mat.rowDim() != mat.colDim()) {
+            throw new IllegalArgumentException("cannot factor nonsquare tiled matrix with shape " + mat.shape());
+        }
+        if (!(tol >= 0)) {
+            throw new IllegalArgumentException("tol must be a double greater than or equal to 0");
+        }
+        decomp = mat;
+        threshold = LUPDecomp.pivotThreshold(maxAbs(mat), tol);
+        numPermutations = 0;
+
+        permArray = new int[mat.rowDim()];
+        for (int i = 0; i < permArray.length; i++) {
+            permArray[i] = i;
+        }
+
+        final int nt = mat.tileRows();
+        for (int k = 0; k < nt; k++) {
+            int[] pivots = factorPanel(k);
+            swapRows(k, pivots);
+            solveRowPanel(k);
+            // trailing update A[i, j] -= L[i, k] * U[k, j] for i, j > k
+            TiledMatrix.multiplyAdd(-1, decomp, decomp, decomp, k + 1, k + 1, k, k + 1);
+        }
+    }
+
+    // factors tile column k below the diagonal in place, one column per pass over its tiles, so no more than one
+    // tile of the panel is held at a time and a tall panel stays within the TileCache budget. the arithmetic and
+    // pivot choices are the same as TileKernels.getrf on the packed panel
+    private int[] factorPanel(int k) {
+        final int ts = decomp.tileSize();
+        final int width = decomp.tileColDim(k);
+        final int height = decomp.rowDim() - k * ts;
+        final int steps = Math.min(height, width);
+        int[] pivots = new int[width];
+        double[] pivotRow = new double[width];
+
+        int pivot = steps > 0 ? findPivot(k, 0, 0) : 0;
+        for (int j = 0; j < steps; j++) {
+            pivots[j] = pivot;
+            if (pivot != j) {
+                swapPanelRows(k, j, pivot, width);
+            }
+            readPanelRow(k, j, pivotRow, width);
+            final double diag = pivotRow[j];
+            if (Math.abs(diag) < threshold) {
+                singular = true;
+            }
+            if (diag != 0) {
+                pivot = eliminate(k, j, pivotRow, diag, width);
+            } else if (j + 1 < steps) {
+                pivot = findPivot(k, j + 1, j + 1);
+            }
+        }
+
+        for (int t = 0; t < width; t++) {
+            final int row = k * ts + t;
+            final int max = k * ts + pivots[t];
+            pivots[t] = max;
+            if (max != row) {
+                int tmp = permArray[max];
+                permArray[max] = permArray[row];
+                permArray[row] = tmp;
+                numPermutations++;
+            }
+        }
+        return pivots;
+    }
+
+    // the first panel row at or below from with the largest |a(row, col)|
+    private int findPivot(int k, int from, int col) {
+        final int ts = decomp.tileSize();
+        final int height = decomp.rowDim() - k * ts;
+        int max = from;
+        double largest = -1;
+        for (int p = from; p < height; ) {
+            final int ti = k + p / ts;
+            final double[] tile = decomp.acquire(ti, k);
+            for (; p < height && k + p / ts == ti; p++) {
+                final double abs = Math.abs(tile[(p % ts) * ts + col]);
+                if (abs > largest) {
+                    largest = abs;
+                    max = p;
+                }
+            }
+            decomp.release(ti, k, false);
+        }
+        return max;
+    }
+
+    // eliminates column j below the pivot and returns the pivot row for column j + 1 from the updated values
+    private int eliminate(int k, int j, double[] pivotRow, double diag, int width) {
+        final boolean search = j + 1 < width;
+        final int ts = decomp.tileSize();
+        final int height = decomp.rowDim() - k * ts;
+        int max = j + 1;
+        double largest = -1;
+        for (int p = j + 1; p < height; ) {
+            final int ti = k + p / ts;
+            final double[] tile = decomp.acquire(ti, k);
+            for (; p < height && k + p / ts == ti; p++) {
+                final int row = (p % ts) * ts;
+                final double factor = tile[row + j] /= diag;
+                if (factor != 0) {
+                    for (int c = j + 1; c < width; c++) {
+                        tile[row + c] -= factor * pivotRow[c];
+                    }
+                }
+                final double abs = search ? Math.abs(tile[row + j + 1]) : 0;
+                if (abs > largest) {
+                    largest = abs;
+                    max = p;
+                }
+            }
+            decomp.release(ti, k, true);
+        }
+        return max;
+    }
+
+    private void swapPanelRows(int k, int first, int second, int width) {
+        final int ts = decomp.tileSize();
+        final int firstTile = k + first / ts;
+        final int secondTile = k + second / ts;
+        double[] a = decomp.acquire(firstTile, k);
+        double[] b = decomp.acquire(secondTile, k);
+        TileKernels.swapRows(a, (first % ts) * ts, b, (second % ts) * ts, width);
+        decomp.release(secondTile, k, true);
+        decomp.release(firstTile, k, true);
+    }
+
+    private void readPanelRow(int k, int p, double[] dest, int width) {
+        final int ts = decomp.tileSize();
+        final int ti = k + p / ts;
+        System.arraycopy(decomp.acquire(ti, k), (p % ts) * ts, dest, 0, width);
+        decomp.release(ti, k, false);
+    }
+
+    // the panel itself was swapped while it was factored; every other tile column catches up here
+    private void swapRows(int k, int[] pivots) {
+        final int ts = decomp.tileSize();
+        for (int tj = 0; tj < decomp.tileCols(); tj++) {
+            if (tj == k) {
+                continue;
+            }
+            for (int t = 0; t < pivots.length; t++) {
+                final int row = k * ts + t;
+                if (pivots[t] == row) {
+                    continue;
+                }
+                final int firstTile = row / ts;
+                final int secondTile = pivots[t] / ts;
+                double[] first = decomp.acquire(firstTile, tj);
+                double[] second = decomp.acquire(secondTile, tj);
+                TileKernels.swapRows(first, (row % ts) * ts, second, (pivots[t] % ts) * ts, decomp.tileColDim(tj));
+                decomp.release(secondTile, tj, true);
+                decomp.release(firstTile, tj, true);
+            }
+        }
+    }
+
+    private void solveRowPanel(int k) {
+        final int ts = decomp.tileSize();
+        double[] diag = decomp.acquire(k, k);
+        for (int tj = k + 1; tj < decomp.tileCols(); tj++) {
+            double[] tile = decomp.acquire(k, tj);
+            TileKernels.trsmLowerUnit(diag, 0, ts, tile, 0, ts, decomp.tileRowDim(k), decomp.tileColDim(tj));
+            decomp.release(k, tj, true);
+        }
+        decomp.release(k, k, false);
+    }
+
+    public Matrix solve(Matrix b) {
+        if (singular) {
+            throw new ArithmeticException("matrix is singular");
+        }
+        if (decomp.rowDim() != b.rowDim()) {
+            throw new IllegalArgumentException("equation is not solveable for LHS with shape " + decomp.shape() +
+                    " and RHS with shape " + b.shape());
+        }
+
+        final int ts = decomp.tileSize();
+        final int nrhs = b.colDim();
+        Matrix x = new Matrix(new Shape(decomp.colDim(), nrhs));
+        for (int i = 0; i < permArray.length; i++) {
+            for (int j = 0; j < nrhs; j++) {
+                x.set(i, j, b.get(permArray[i], j));
+            }
+        }
+
+        // each pass touches every tile of its triangle exactly once, column by column
+        final double[] xData = x.data();
+        final int nt = decomp.tileRows();
+        for (int k = 0; k < nt; k++) {
+            double[] diag = decomp.acquire(k, k);
+            TileKernels.trsmLowerUnit(diag, 0, ts, xData, k * ts * nrhs, nrhs, decomp.tileRowDim(k), nrhs);
+            decomp.release(k, k, false);
+            for (int i = k + 1; i < nt; i++) {
+                double[] tile = decomp.acquire(i, k);
+                TileKernels.gemm(-1, tile, 0, ts, xData, k * ts * nrhs, nrhs, xData, i * ts * nrhs, nrhs,
+                        decomp.tileRowDim(i), nrhs, decomp.tileColDim(k));
+                decomp.release(i, k, false);
+            }
+        }
+
+        for (int k = nt - 1; k >= 0; k--) {
+            double[] diag = decomp.acquire(k, k);
+            TileKernels.trsmUpper(diag, 0, ts, xData, k * ts * nrhs, nrhs, decomp.tileRowDim(k), nrhs);
+            decomp.release(k, k, false);
+            for (int i = 0; i < k; i++) {
+                double[] tile = decomp.acquire(i, k);
+                TileKernels.gemm(-1, tile, 0, ts, xData, k * ts * nrhs, nrhs, xData, i * ts * nrhs, nrhs,
+                        decomp.tileRowDim(i), nrhs, decomp.tileColDim(k));
+                decomp.release(i, k, false);
+            }
+        }
+
+        return x;
+    }
+
+    public Vector solve(Vector b) {
+        return Vector.asVector(solve(Matrix.viewOf(b)));
+    }
+
+    private static double maxAbs(TiledMatrix mat) {
+        final int ts = mat.tileSize();
+        double maxAbs = 0;
+        for (int ti = 0; ti < mat.tileRows(); ti++) {
+            for (int tj = 0; tj < mat.tileCols(); tj++) {
+                final double[] tile = mat.acquire(ti, tj);
+                for (int i = 0; i < mat.tileRowDim(ti); i++) {
+                    for (int j = 0; j < mat.tileColDim(tj); j++) {
+                        maxAbs = Math.max(maxAbs, Math.abs(tile[i * ts + j]));
+                    }
+                }
+                mat.release(ti, tj, false);
+            }
+        }
+        return maxAbs;
+    }
+
+    public double pivotThreshold() {
+        return threshold;
+    }
+
+    public int[] getPermutation() {
+        return permArray.clone();
+    }
+
+    public int numPermutations() {
+        return numPermutations;
+    }
+
+    public boolean isSingular() {
+        return singular;
+    }
+
+    @Override
+    public String toString() {
+        return "TiledLUPDecomp of " + decomp;
+    }
+
+}
@@ -0,0 +1,233 @@
+package com.github.orangese.linalg;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class TiledMatrix implements AutoCloseable {
+
+    private final Shape shape;
+    private final int tileSize;
+    private final int tileRows;
+    private final int tileCols;
+    private final TileStore store;
+    private final TileCache cache;
+
+    private TiledMatrix(Path file, Shape shape, int tileSize, TileCache cache, boolean create) throws IOException {
+        if (shape.ndims() != 2) {
+            throw new IllegalArgumentException("cannot instantiate tiled matrix with number of axis != 2");
+        }
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("tileSize must be an int greater than 0");
+        }
+        this.shape = shape;
+        this.tileSize = tileSize;
+        this.tileRows = ceilDiv(shape.rowDim(), tileSize);
+        this.tileCols = ceilDiv(shape.colDim(), tileSize);
+        this.store = new TileStore(file, tileRows, tileCols, tileSize, create);
+        this.cache = cache;
+    }
+
+    public static TiledMatrix create(Path file, Shape shape, int tileSize, TileCache cache) throws IOException {
+        return new TiledMatrix(file, shape, tileSize, cache, true);
+    }
+
+    public static TiledMatrix open(Path file, Shape shape, int tileSize, TileCache cache) throws IOException {
+        return new TiledMatrix(file, shape, tileSize, cache, false);
+    }
+
+    public static TiledMatrix fromMatrix(Matrix mat, Path file, int tileSize, TileCache cache) throws IOException {
+        TiledMatrix tiled = create(file, mat.shape(), tileSize, cache);
+        for (int ti = 0; ti < tiled.tileRows; ti++) {
+            for (int tj = 0; tj < tiled.tileCols; tj++) {
+                double[] tile = tiled.acquire(ti, tj);
+                for (int i = 0; i < tiled.tileRowDim(ti); i++) {
+                    for (int j = 0; j < tiled.tileColDim(tj); j++) {
+                        tile[i * tileSize + j] = mat.get(ti * tileSize + i, tj * tileSize + j);
+                    }
+                }
+                tiled.release(ti, tj, true);
+            }
+        }
+        return tiled;
+    }
+
+    public Matrix toMatrix() {
+        Matrix mat = new Matrix(shape);
+        for (int ti = 0; ti < tileRows; ti++) {
+            for (int tj = 0; tj < tileCols; tj++) {
+                double[] tile = acquire(ti, tj);
+                for (int i = 0; i < tileRowDim(ti); i++) {
+                    System.arraycopy(tile, i * tileSize, mat.data(),
+                            mat.getStrided(ti * tileSize + i, tj * tileSize), tileColDim(tj));
+                }
+                release(ti, tj, false);
+            }
+        }
+        return mat;
+    }
+
+    public Shape shape() {
+        return shape;
+    }
+
+    public int rowDim() {
+        return shape.rowDim();
+    }
+
+    public int colDim() {
+        return shape.colDim();
+    }
+
+    public int tileSize() {
+        return tileSize;
+    }
+
+    public int tileRows() {
+        return tileRows;
+    }
+
+    public int tileCols() {
+        return tileCols;
+    }
+
+    public TileCache cache() {
+        return cache;
+    }
+
+    public double get(int row, int col) {
+        checkIndex(row, col);
+        double[] tile = acquire(row / tileSize, col / tileSize);
+        double val = tile[(row % tileSize) * tileSize + col % tileSize];
+        release(row / tileSize, col / tileSize, false);
+        return val;
+    }
+
+    public void set(int row, int col, double newVal) {
+        checkIndex(row, col);
+        double[] tile = acquire(row / tileSize, col / tileSize);
+        tile[(row % tileSize) * tileSize + col % tileSize] = newVal;
+        release(row / tileSize, col / tileSize, true);
+    }
+
+    public TiledMatrix mul(TiledMatrix o, Path file) throws IOException {
+        if (colDim() != o.rowDim()) {
+            throw new IllegalArgumentException(String.format(
+                    "cannot perform %s between shapes %s and %s", "matrix multiplication", shape, o.shape
+            ));
+        }
+        if (tileSize != o.tileSize) {
+            throw new IllegalArgumentException("cannot multiply tiled matrices with tile sizes " +
+                    tileSize + " and " + o.tileSize);
+        }
+        TiledMatrix product = create(file, new Shape(rowDim(), o.colDim()), tileSize, cache);
+        multiplyAdd(1, this, o, product, 0, 0, 0, tileCols);
+        return product;
+    }
+
+    public void flush() {
+        cache.flush(this);
+        store.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.drop(this);
+        store.close();
+    }
+
+    // c[i, j] += alpha * sum over k of a[i, k] * b[k, j] for tiles i >= iFrom, j >= jFrom, kFrom <= k < kTo
+    static void multiplyAdd(double alpha, TiledMatrix a, TiledMatrix b, TiledMatrix c,
+                            int iFrom, int jFrom, int kFrom, int kTo) {
+        // keep an s x s block of c pinned and stream the matching a and b tiles past it, so every
+        // a and b tile is read about (tiles of c) / s times instead of once per c tile
+        final int block = Math.max(1, (int) Math.sqrt(c.cache.capacity() + 1) - 1);
+        final int ld = c.tileSize;
+
+        boolean forward = true;
+        for (int bi = iFrom; bi < c.tileRows; bi += block) {
+            final int iTo = Math.min(bi + block, c.tileRows);
+
+            // snake through the column blocks so the a tiles of the last block are still cached
+            for (int step = 0; step < ceilDiv(c.tileCols - jFrom, block); step++) {
+                final int bj = forward ? jFrom + step * block :
+                        jFrom + (ceilDiv(c.tileCols - jFrom, block) - 1 - step) * block;
+                final int jTo = Math.min(bj + block, c.tileCols);
+
+                double[][] cTiles = new double[(iTo - bi) * (jTo - bj)][];
+                for (int i = bi; i < iTo; i++) {
+                    for (int j = bj; j < jTo; j++) {
+                        cTiles[(i - bi) * (jTo - bj) + j - bj] = c.acquire(i, j);
+                    }
+                }
+
+                for (int k = kFrom; k < kTo; k++) {
+                    double[][] bTiles = new double[jTo - bj][];
+                    for (int j = bj; j < jTo; j++) {
+                        bTiles[j - bj] = b.acquire(k, j);
+                    }
+                    for (int i = bi; i < iTo; i++) {
+                        double[] aTile = a.acquire(i, k);
+                        for (int j = bj; j < jTo; j++) {
+                            TileKernels.gemm(alpha, aTile, 0, ld, bTiles[j - bj], 0, ld,
+                                    cTiles[(i - bi) * (jTo - bj) + j - bj], 0, ld,
+                                    c.tileRowDim(i), c.tileColDim(j), a.tileColDim(k));
+                        }
+                        a.release(i, k, false);
+                    }
+                    for (int j = bj; j < jTo; j++) {
+                        b.release(k, j, false);
+                    }
+                }
+
+                for (int i = bi; i < iTo; i++) {
+                    for (int j = bj; j < jTo; j++) {
+                        c.release(i, j, true);
+                    }
+                }
+            }
+            forward = !forward;
+        }
+    }
+
+    double[] acquire(int tileRow, int tileCol) {
+        return cache.acquire(this, tileRow, tileCol);
+    }
+
+    void release(int tileRow, int tileCol, boolean dirty) {
+        cache.release(this, tileRow, tileCol, dirty);
+    }
+
+    TileStore store() {
+        return store;
+    }
+
+    int tileRowDim(int tileRow) {
+        return Math.min(tileSize, rowDim() - tileRow * tileSize);
+    }
+
+    int tileColDim(int tileCol) {
+        return Math.min(tileSize, colDim() - tileCol * tileSize);
+    }
+
+    private void checkIndex(int row, int col) {
+        if (row < 0 || row >= rowDim()) {
+            throw new ArrayIndexOutOfBoundsException(String.format(
+                    "index %d out of range for axis %d of length %d", row, 0, rowDim()
+            ));
+        } else if (col < 0 || col >= colDim()) {
+            throw new ArrayIndexOutOfBoundsException(String.format(
+                    "index %d out of range for axis %d of length %d", col, 1, colDim()
+            ));
+        }
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+
+    @Override
+    public String toString() {
+        return "TiledMatrix" + shape + " in " + tileRows + " x " + tileCols + " tiles of " + tileSize;
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.github.orangese.linalg;
+
+// point-to-point messaging between the ranks of a distributed computation. messages between the same pair of
+// ranks with the same tag arrive in the order they were sent, and a rank may send to itself.
+public interface Transport extends AutoCloseable {
+
+    int rank();
+
+    int size();
+
+    // ownership of data passes to the receiver, so the sender must not write to it afterwards
+    void send(int dest, int tag, double[] data);
+
+    // blocks until a message with this tag arrives from source
+    double[] receive(int source, int tag);
+
+    @Override
+    void close();
+
+}
@@ -30,7 +30,9 @@ public class Vector extends Matrix {
     }
 
     public void set(int idx, double newVal) {
+        checkMutable();
         data()[idx] = newVal;
+        markModified();
     }
 
     public Vector add(Vector o) {
@@ -51,12 +53,16 @@ public class Vector extends Matrix {
     }
 
     public Scalar dot(Vector o) {
+        return new Scalar(dotValue(o));
+    }
+
+    public double dotValue(Vector o) {
+        return dotValue(o, Reduction.getGlobalMode());
+    }
+
+    public double dotValue(Vector o, Reduction.Mode mode) {
         checkAddShapes(o, "dot product"); // add shape requirements == dot prod shape requirements
-        double prod = 0;
-        for (int i = 0; i < data().length; i++) {
-            prod += get(i) * o.get(i);
-        }
-        return new Scalar(prod);
+        return Reduction.dot(data(), o.data(), mode);
     }
 
     public static Vector asVector(Matrix o) {
@@ -64,6 +70,7 @@ public class Vector extends Matrix {
 
         vec.setData(o.data());
         vec.setShape(o.shape());
+        vec.shareVersion(o);
 
         return vec;
     }
@@ -0,0 +1,92 @@
+package com.github.orangese.linalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.github.orangese.linalg.DistributedMatrixTest.assertClose;
+import static com.github.orangese.linalg.DistributedMatrixTest.random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DistributedLUPDecompTest {
+
+    private static final int[][] GRIDS = {{1, 1}, {1, 3}, {2, 1}, {2, 2}, {2, 3}, {3, 2}};
+
+    @Test
+    void factorsPivotsAndSolveMatchInCoreLU() throws Exception {
+        final Matrix a = random(23, 23, 1);
+        final Matrix b = random(23, 3, 2);
+        final LUPDecomp expected = new LUPDecomp(a);
+        final Matrix expectedSolution = expected.solve(b);
+
+        for (int[] shape : GRIDS) {
+            // 4 and 5 leave a ragged last block, 23 is a single block
+            for (int blockSize : new int[]{4, 5, 23}) {
+                List<Object[]> results = Spmd.onGrid(shape[0], shape[1], grid -> {
+                    final boolean root = grid.transport().rank() == 0;
+                    DistributedLUPDecomp lu = new DistributedLUPDecomp(
+                            DistributedMatrix.scatter(grid, 0, root ? a : null, blockSize));
+                    return new Object[]{lu.toLUPDecomp(0), lu.getPermutation(), lu.isSingular(), lu.solve(b)};
+                });
+
+                final LUPDecomp gathered = (LUPDecomp) results.get(0)[0];
+                assertClose(expected.L(), gathered.L(), 1e-12);
+                assertClose(expected.U(), gathered.U(), 1e-12);
+                assertClose(expected.P(), gathered.P(), 0);
+                for (int rank = 0; rank < results.size(); rank++) {
+                    final Object[] result = results.get(rank);
+                    if (rank > 0) {
+                        assertNull(result[0]);
+                    }
+                    assertArrayEquals(permutation(expected.P()), (int[]) result[1]);
+                    assertFalse((Boolean) result[2]);
+                    assertClose(expectedSolution, (Matrix) result[3], 1e-10);
+                }
+                // the determinant's sign carries numPermutations
+                assertEquals(expected.detValue(), gathered.detValue(), 1e-9 * Math.abs(expected.detValue()));
+            }
+        }
+    }
+
+    @Test
+    void singularInputIsSingularOnEveryRank() throws Exception {
+        final Matrix a = random(17, 17, 3);
+        // row 11 = row 2 + row 5, so the matrix has rank 16
+        for (int j = 0; j < a.colDim(); j++) {
+            a.set(11, j, a.get(2, j) + a.get(5, j));
+        }
+        assertTrue(new LUPDecomp(a).isSingular());
+
+        for (int[] shape : GRIDS) {
+            List<Boolean> results = Spmd.onGrid(shape[0], shape[1], grid -> {
+                final boolean root = grid.transport().rank() == 0;
+                DistributedLUPDecomp lu = new DistributedLUPDecomp(
+                        DistributedMatrix.scatter(grid, 0, root ? a : null, 5));
+                assertThrows(ArithmeticException.class, () -> lu.solve(new Matrix(new Shape(17, 1))));
+                return lu.isSingular();
+            });
+            for (boolean singular : results) {
+                assertTrue(singular);
+            }
+        }
+    }
+
+    // the row that P maps each row to, as getPermutation reports it
+    private static int[] permutation(Matrix p) {
+        int[] perm = new int[p.rowDim()];
+        for (int i = 0; i < p.rowDim(); i++) {
+            for (int j = 0; j < p.colDim(); j++) {
+                if (p.get(i, j) == 1) {
+                    perm[i] = j;
+                }
+            }
+        }
+        return perm;
+    }
+
+}
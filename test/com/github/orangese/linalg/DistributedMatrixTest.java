@@ -0,0 +1,134 @@
+package com.github.orangese.linalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DistributedMatrixTest {
+
+    private static final int[][] GRIDS = {{1, 1}, {1, 3}, {2, 1}, {2, 2}, {2, 3}, {3, 2}};
+
+    @Test
+    void summaMatchesInCoreProductOnEveryGrid() throws Exception {
+        final Matrix a = random(23, 17, 1);
+        final Matrix b = random(17, 11, 2);
+        final Matrix expected = a.mul(b);
+
+        for (int[] shape : GRIDS) {
+            // 4 and 5 leave ragged edge blocks, 30 puts everything in one block
+            for (int blockSize : new int[]{4, 5, 30}) {
+                List<Matrix> results = Spmd.onGrid(shape[0], shape[1], grid -> {
+                    final boolean root = grid.transport().rank() == 0;
+                    DistributedMatrix da = DistributedMatrix.scatter(grid, 0, root ? a : null, blockSize);
+                    DistributedMatrix db = DistributedMatrix.scatter(grid, 0, root ? b : null, blockSize);
+                    return da.mul(db).gather(0);
+                });
+                assertClose(expected, results.get(0), 1e-12);
+                for (int rank = 1; rank < results.size(); rank++) {
+                    assertNull(results.get(rank));
+                }
+            }
+        }
+    }
+
+    @Test
+    void scatterThenGatherIsExact() throws Exception {
+        final Matrix a = random(13, 9, 3);
+        List<Matrix> results = Spmd.onGrid(2, 3, grid -> DistributedMatrix.scatter(grid, 1,
+                grid.transport().rank() == 1 ? a : null, 4).gather(1));
+        assertClose(a, results.get(1), 0);
+    }
+
+    @Test
+    void socketTransportRoundTripsMessagesAndRunsSumma() throws Exception {
+        final int size = 4;
+        final List<InetSocketAddress> addresses = freeAddresses(size);
+        // larger than one transport chunk, with values that must survive bit for bit
+        final double[] payload = new double[(1 << 16) + 3];
+        Random random = new Random(4);
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = random.nextGaussian();
+        }
+        payload[0] = Double.NaN;
+        payload[1] = -0.0;
+        payload[2] = Double.MIN_VALUE;
+        final Matrix a = random(10, 7, 5);
+        final Matrix b = random(7, 9, 6);
+
+        List<Matrix> results = Spmd.run(size, rank -> {
+            try (SocketTransport transport = SocketTransport.connect(rank, addresses)) {
+                assertEquals(rank, transport.rank());
+                assertEquals(size, transport.size());
+
+                // a ring: send to the next rank, echo what arrives from the previous one back to it
+                final int next = (rank + 1) % size;
+                final int prev = (rank + size - 1) % size;
+                transport.send(next, 7, payload.clone());
+                transport.send(next, 8, new double[0]);
+                transport.send(rank, 9, new double[]{rank});
+                transport.send(prev, 10, transport.receive(prev, 7));
+                assertArrayEquals(payload, transport.receive(next, 10));
+                assertEquals(0, transport.receive(prev, 8).length);
+                assertEquals(rank, transport.receive(rank, 9)[0], 0);
+
+                ProcessGrid grid = new ProcessGrid(transport, 2, 2);
+                DistributedMatrix da = DistributedMatrix.scatter(grid, 0, rank == 0 ? a : null, 3);
+                DistributedMatrix db = DistributedMatrix.scatter(grid, 0, rank == 0 ? b : null, 3);
+                Matrix product = da.mul(db).gather(0);
+                // nobody may close while a peer is still reading its last message
+                grid.allReduce(new double[1], false);
+                return product;
+            }
+        });
+        assertClose(a.mul(b), results.get(0), 1e-12);
+    }
+
+    private static List<InetSocketAddress> freeAddresses(int count) throws IOException {
+        final InetAddress loopback = InetAddress.getLoopbackAddress();
+        List<ServerSocket> sockets = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                ServerSocket socket = new ServerSocket(0, 1, loopback);
+                sockets.add(socket);
+                addresses.add(new InetSocketAddress(loopback, socket.getLocalPort()));
+            }
+        } finally {
+            for (ServerSocket socket : sockets) {
+                socket.close();
+            }
+        }
+        return addresses;
+    }
+
+    static void assertClose(Matrix expected, Matrix actual, double tol) {
+        assertEquals(expected.shape(), actual.shape());
+        for (int i = 0; i < expected.rowDim(); i++) {
+            for (int j = 0; j < expected.colDim(); j++) {
+                assertEquals(expected.get(i, j), actual.get(i, j), tol);
+            }
+        }
+    }
+
+    static Matrix random(int rows, int cols, long seed) {
+        Random random = new Random(seed);
+        Matrix mat = new Matrix(new Shape(rows, cols));
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                mat.set(i, j, random.nextGaussian());
+            }
+        }
+        return mat;
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.github.orangese.linalg;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FactorizationCacheTest {
+
+    @Test
+    void contentEntryDoesNotTrackFirstCallersMatrix() {
+        FactorizationCache cache = new FactorizationCache(4, FactorizationCache.Eviction.LRU,
+                FactorizationCache.KeyMode.CONTENT);
+        Matrix m1 = new Matrix(new double[][]{{4, 1}, {2, 3}});
+        Matrix m2 = new Matrix(new double[][]{{4, 1}, {2, 3}});
+
+        LUPDecomp first = cache.lu(m1);
+        m1.set(0, 0, 99);
+        LUPDecomp second = cache.lu(m2);
+
+        assertSame(first, second);
+        assertTrue(second.solveWithReport(new Vector(1, 2)).residualNorm() < 1e-12);
+    }
+
+    @Test
+    void sharedFactorsCannotBeModifiedByOneCaller() {
+        FactorizationCache cache = new FactorizationCache(4, FactorizationCache.Eviction.LRU,
+                FactorizationCache.KeyMode.CONTENT);
+        Matrix mat = new Matrix(new double[][]{{4, 1}, {2, 3}});
+
+        LUPDecomp lu = cache.lu(mat);
+        final double u00 = lu.U().get(0, 0);
+        assertThrows(UnsupportedOperationException.class, () -> lu.U().set(0, 0, 1000));
+        assertThrows(UnsupportedOperationException.class, () -> lu.L().set(1, 0, 1000));
+        assertThrows(UnsupportedOperationException.class, () -> lu.P().set(0, 0, 1000));
+        assertEquals(u00, cache.lu(new Matrix(mat)).U().get(0, 0));
+        assertSame(lu.U(), cache.lu(mat).U());
+    }
+
+    @Test
+    void uncachedFactorsStayMutable() {
+        LUPDecomp lu = new LUPDecomp(new Matrix(new double[][]{{4, 1}, {2, 3}}));
+
+        lu.U().set(0, 0, 1000);
+        lu.L().set(1, 0, 1000);
+        lu.getPivotPos().add(5);
+
+        assertEquals(1000, lu.U().get(0, 0));
+        assertEquals(1000, lu.L().get(1, 0));
+        assertEquals(3, lu.getPivotPos().size());
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.github.orangese.linalg;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GaussJordanTest {
+
+    @Test
+    void writesToReturnedMatricesDoNotReachTheElimination() {
+        GaussJordan elimination = new GaussJordan(new Matrix(new double[][]{{1, 2, 3}, {2, 4, 6}}));
+        final double before = elimination.nullSpace().get(1, 0);
+
+        elimination.rref().set(0, 1, 100);
+        elimination.nullSpace().set(1, 0, 100);
+
+        assertEquals(2, elimination.rref().get(0, 1), 1e-12);
+        assertEquals(before, elimination.nullSpace().get(1, 0), 0);
+        assertEquals(1, elimination.rank());
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.github.orangese.linalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MatrixIOTest {
+
+    @Test
+    void roundTripsEveryValueExactly() throws IOException {
+        Matrix mat = new Matrix(new double[][]{
+                {0.1, -2.5e-300, 1.0 / 3},
+                {Double.MAX_VALUE, -0.0, 123456789012345678.0},
+                {Double.MIN_VALUE, Double.NaN, Double.NEGATIVE_INFINITY}
+        });
+        StringBuilder csv = new StringBuilder();
+        MatrixIO.writeCsv(mat, csv);
+        StringBuilder tsv = new StringBuilder();
+        MatrixIO.writeTsv(mat, tsv);
+
+        assertBitEquals(mat, MatrixIO.readCsv(new StringReader(csv.toString())));
+        assertBitEquals(mat, MatrixIO.readTsv(new StringReader(tsv.toString())));
+    }
+
+    @Test
+    void parsesPaddedValuesAndCrlf() throws IOException {
+        Matrix mat = MatrixIO.readCsv(new StringReader(" 1 ,\t-2.5e1\r\n3,  +4  \r\n"));
+
+        assertEquals(2, mat.rowDim());
+        assertEquals(2, mat.colDim());
+        assertEquals(1, mat.get(0, 0), 0);
+        assertEquals(-25, mat.get(0, 1), 0);
+        assertEquals(3, mat.get(1, 0), 0);
+        assertEquals(4, mat.get(1, 1), 0);
+    }
+
+    @Test
+    void rejectsWhitespaceInsideAValue() {
+        assertThrows(IllegalArgumentException.class, () -> MatrixIO.readCsv(new StringReader("1 2,3\n")));
+        assertThrows(IllegalArgumentException.class, () -> MatrixIO.readCsv(new StringReader("1,2\n3,4\t5\n")));
+        assertThrows(IllegalArgumentException.class, () -> MatrixIO.readCsv(new StringReader("1,2\r3\n")));
+    }
+
+    @Test
+    void rejectsRaggedRows() {
+        assertThrows(IllegalArgumentException.class, () -> MatrixIO.readCsv(new StringReader("1,2\n3\n")));
+    }
+
+    private static void assertBitEquals(Matrix expected, Matrix actual) {
+        assertEquals(expected.rowDim(), actual.rowDim());
+        assertEquals(expected.colDim(), actual.colDim());
+        for (int i = 0; i < expected.rowDim(); i++) {
+            for (int j = 0; j < expected.colDim(); j++) {
+                assertEquals(Double.doubleToLongBits(expected.get(i, j)), Double.doubleToLongBits(actual.get(i, j)));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.github.orangese.linalg;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class QRDecompTest {
+
+    @Test
+    void singularityTestScalesWithTheMatrix() {
+        final double scale = 1e-12;
+        Matrix small = new Matrix(new double[][]{{2 * scale, scale}, {scale, 3 * scale}, {0, scale}});
+        Vector b = new Vector(3 * scale, 4 * scale, scale);
+
+        Vector x = new QRDecomp(small).solve(b);
+        assertEquals(1, x.get(0), 1e-9);
+        assertEquals(1, x.get(1), 1e-9);
+    }
+
+    @Test
+    void rankDeficientMatrixIsSingularAtAnyScale() {
+        for (double scale : new double[]{1e-12, 1, 1e12}) {
+            Matrix deficient = new Matrix(new double[][]{{scale, 2 * scale}, {2 * scale, 4 * scale}, {scale, 2 * scale}});
+            assertThrows(ArithmeticException.class, () -> new QRDecomp(deficient).solve(new Vector(1, 1, 1)));
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.github.orangese.linalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReductionTest {
+
+    private static final double U = Math.ulp(1.0) / 2;
+
+    @Test
+    void treeModesAreBitIdenticalForAnyPoolSize() {
+        // past PARALLEL_THRESHOLD and not a whole number of leaves
+        final int n = 3 * (1 << 16) + 12345;
+        double[] a = illConditioned(n, 1);
+        double[] b = illConditioned(n, 2);
+
+        for (Reduction.Mode mode : new Reduction.Mode[]{Reduction.Mode.REPRODUCIBLE, Reduction.Mode.COMPENSATED}) {
+            final long sum = bits(Reduction.reduce(a, 0, null, 0, n, mode, new ForkJoinPool(1)));
+            final long dot = bits(Reduction.reduce(a, 0, b, 0, n, mode, new ForkJoinPool(1)));
+            for (int p : new int[]{2, 3, 4, 7, 16}) {
+                ForkJoinPool pool = new ForkJoinPool(p);
+                try {
+                    for (int rep = 0; rep < 3; rep++) {
+                        assertEquals(sum, bits(Reduction.reduce(a, 0, null, 0, n, mode, pool)), mode + " sum, p=" + p);
+                        assertEquals(dot, bits(Reduction.reduce(a, 0, b, 0, n, mode, pool)), mode + " dot, p=" + p);
+                    }
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    @Test
+    void accumulatorMatchesTheArrayPath() {
+        Random random = new Random(3);
+        for (Reduction.Mode mode : new Reduction.Mode[]{Reduction.Mode.REPRODUCIBLE, Reduction.Mode.COMPENSATED}) {
+            Reduction.Accumulator acc = new Reduction.Accumulator(mode);
+            for (int n : new int[]{0, 1, Reduction.LEAF - 1, Reduction.LEAF, Reduction.LEAF + 1, 5 * Reduction.LEAF + 7,
+                    (1 << 16) + 1}) {
+                double[] a = new double[n];
+                for (int i = 0; i < n; i++) {
+                    a[i] = random.nextGaussian() * Math.exp(10 * random.nextGaussian());
+                    acc.add(a[i]);
+                }
+                assertEquals(bits(Reduction.sum(a, mode)), bits(acc.finish()), mode + ", n=" + n);
+            }
+        }
+    }
+
+    @Test
+    void compensatedSurvivesCancellationAcrossLeaves() {
+        // FAST and REPRODUCIBLE both drop the ones that were added next to 1e100
+        double[] a = new double[200_000];
+        Arrays.fill(a, 1);
+        a[0] = 1e100;
+        a[100_000] = -1e100;
+
+        assertEquals(199_998, Reduction.sum(a, Reduction.Mode.COMPENSATED), 0);
+        assertTrue(Reduction.sum(a, Reduction.Mode.REPRODUCIBLE) != 199_998);
+    }
+
+    @Test
+    void compensatedIsWithinItsBoundOfTheExactSum() {
+        final int n = 100_000;
+        double[] a = illConditioned(n, 4);
+        BigDecimal exact = BigDecimal.ZERO;
+        double absSum = 0;
+        for (double x : a) {
+            exact = exact.add(new BigDecimal(x));
+            absSum += Math.abs(x);
+        }
+        final double reference = exact.doubleValue();
+        // sum|x| / |sum| is far past what working precision can resolve
+        assertTrue(absSum / Math.abs(reference) > 1e10);
+
+        // |s - fl(s)| <= u |s| + (n u)^2 sum|x| for a compensated sum
+        final double bound = U * Math.abs(reference) + (n * U) * (n * U) * absSum;
+        assertEquals(reference, Reduction.sum(a, Reduction.Mode.COMPENSATED), bound);
+        assertTrue(Math.abs(Reduction.sum(a, Reduction.Mode.REPRODUCIBLE) - reference) > bound);
+    }
+
+    // pairs of large values that cancel exactly, shuffled among small ones
+    private static double[] illConditioned(int n, long seed) {
+        Random random = new Random(seed);
+        double[] a = new double[n];
+        for (int i = 0; i + 1 < n; i += 2) {
+            if (i % 4 == 0) {
+                a[i] = random.nextGaussian() * Math.scalb(1.0, random.nextInt(40));
+                a[i + 1] = -a[i];
+            } else {
+                a[i] = random.nextGaussian();
+                a[i + 1] = random.nextGaussian();
+            }
+        }
+        for (int i = n - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final double t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+        return a;
+    }
+
+    private static long bits(double x) {
+        return Double.doubleToLongBits(x);
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.github.orangese.linalg;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ShapeTest {
+
+    @Test
+    void sizeIsTheProductForEveryRank() {
+        assertEquals(0, Shape.of(0, 3).size());
+        assertEquals(0, Shape.of(1, 0, 3).size());
+        assertEquals(6, Shape.of(2, 3).size());
+        assertEquals(24, Shape.of(2, 3, 4).size());
+        assertEquals(Shape.of(1, 0, 3).size(), new Tensor(Shape.of(1, 0, 3)).size());
+    }
+
+    @Test
+    void matrixObjectsKeepAtLeastOneElement() {
+        assertEquals(1, new Scalar(2).size());
+        assertEquals(1, new Matrix(new Shape()).data().length);
+        assertEquals(6, new Matrix(new Shape(2, 3)).size());
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.github.orangese.linalg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// runs one body per rank on its own thread, as the distributed classes expect, and returns the results by rank
+final class Spmd {
+
+    interface Body<T> {
+
+        T run(int rank) throws Exception;
+
+    }
+
+    interface GridBody<T> {
+
+        T run(ProcessGrid grid) throws Exception;
+
+    }
+
+    private Spmd() {
+    }
+
+    static <T> List<T> run(int size, Body<T> body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(size);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int rank = 0; rank < size; rank++) {
+                final int r = rank;
+                futures.add(executor.submit(() -> body.run(r)));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                // a rank stuck in receive would otherwise hang the build
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // every rank of a fresh loopback transport on a rows x cols grid
+    static <T> List<T> onGrid(int rows, int cols, GridBody<T> body) throws Exception {
+        final LoopbackTransport[] transports = LoopbackTransport.create(rows * cols);
+        return run(rows * cols, rank -> body.run(new ProcessGrid(transports[rank], rows, cols)));
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.github.orangese.linalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StrassenMultiplierTest {
+
+    private static final double U = Math.ulp(1.0) / 2;
+
+    @Test
+    void matchesClassicalWithinTheDocumentedBound() {
+        ForkJoinPool sequential = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(4);
+        try {
+            for (ForkJoinPool pool : new ForkJoinPool[]{sequential, parallel}) {
+                StrassenMultiplier strassen = new StrassenMultiplier(16, pool);
+                // odd, rectangular and below the cutoff
+                check(strassen, 301, 301, 301, 1);
+                check(strassen, 300, 300, 300, 2);
+                check(strassen, 97, 130, 67, 3);
+                check(strassen, 64, 33, 200, 4);
+                check(strassen, 20, 40, 20, 5);
+                check(strassen, 1, 1, 1, 6);
+            }
+        } finally {
+            sequential.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void shouldUseNeedsEveryDimensionAtTwiceTheCutoff() {
+        StrassenMultiplier strassen = new StrassenMultiplier(16, ForkJoinPool.commonPool());
+
+        assertTrue(strassen.shouldUse(32, 32, 32));
+        assertFalse(strassen.shouldUse(31, 64, 64));
+        assertFalse(strassen.shouldUse(64, 31, 64));
+        assertFalse(strassen.shouldUse(64, 64, 31));
+        assertEquals(0, strassen.levels(31, 31, 31));
+        assertEquals(1, strassen.levels(32, 63, 1000));
+        assertEquals(2, strassen.levels(64, 64, 64));
+    }
+
+    @Test
+    void matrixMulRoutesOnlyAcceptedShapesThroughTheGlobalMultiplier() {
+        AtomicInteger calls = new AtomicInteger();
+        StrassenMultiplier counting = new StrassenMultiplier(16, ForkJoinPool.commonPool()) {
+            @Override
+            public Matrix mul(Matrix a, Matrix b) {
+                calls.incrementAndGet();
+                return super.mul(a, b);
+            }
+        };
+
+        StrassenMultiplier.enable(counting);
+        try {
+            random(31, 64, 7).mul(random(64, 64, 8));
+            assertEquals(0, calls.get());
+
+            Matrix a = random(40, 50, 9);
+            Matrix b = random(50, 33, 10);
+            Matrix product = a.mul(b);
+            assertEquals(1, calls.get());
+
+            StrassenMultiplier.disable();
+            assertClose(a.mul(b), product, bound(counting, 40, 50, 33, a, b));
+            a.mul(b);
+            assertEquals(1, calls.get());
+        } finally {
+            StrassenMultiplier.disable();
+        }
+    }
+
+    private static void check(StrassenMultiplier strassen, int m, int k, int n, long seed) {
+        StrassenMultiplier.disable();
+        Matrix a = random(m, k, seed);
+        Matrix b = random(k, n, seed + 100);
+        assertClose(a.mul(b), strassen.mul(a, b), bound(strassen, m, k, n, a, b));
+    }
+
+    // the header bound for strassen plus the classical kernel's own k^2 u max|A| max|B|, since the reference is
+    // rounded too. rectangular products are padded, so n is the largest padded dimension and n0 its base block
+    private static double bound(StrassenMultiplier strassen, int m, int k, int n, Matrix a, Matrix b) {
+        final int levels = strassen.levels(m, k, n);
+        final int step = 1 << levels;
+        final int n0 = (Math.max(m, Math.max(k, n)) + step - 1) / step;
+        final double size = (double) n0 * step;
+        final double strassenBound = Math.pow(18, levels) * (n0 * (double) n0 + 6.0 * n0) - 6 * size;
+        return (Math.max(strassenBound, 0) + (double) k * k) * U * maxAbs(a) * maxAbs(b);
+    }
+
+    private static void assertClose(Matrix expected, Matrix actual, double tol) {
+        assertEquals(expected.rowDim(), actual.rowDim());
+        assertEquals(expected.colDim(), actual.colDim());
+        for (int i = 0; i < expected.rowDim(); i++) {
+            for (int j = 0; j < expected.colDim(); j++) {
+                assertEquals(expected.get(i, j), actual.get(i, j), tol);
+            }
+        }
+    }
+
+    private static double maxAbs(Matrix mat) {
+        double max = 0;
+        for (int i = 0; i < mat.rowDim(); i++) {
+            for (int j = 0; j < mat.colDim(); j++) {
+                max = Math.max(max, Math.abs(mat.get(i, j)));
+            }
+        }
+        return max;
+    }
+
+    private static Matrix random(int rows, int cols, long seed) {
+        Random random = new Random(seed);
+        Matrix mat = new Matrix(new Shape(rows, cols));
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                mat.set(i, j, random.nextGaussian());
+            }
+        }
+        return mat;
+    }
+
+}
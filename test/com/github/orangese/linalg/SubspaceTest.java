@@ -0,0 +1,52 @@
+package com.github.orangese.linalg;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SubspaceTest {
+
+    private static final double TOL = 1e-12;
+
+    @Test
+    void principalAnglesAgreeInBothOrdersForUnequalDims() {
+        Subspace line = new Subspace(new Vector(1, 0, 0));
+        Subspace plane = new Subspace(new Vector(0, 1, 0), new Vector(0, 0, 1));
+
+        assertArrayEquals(new double[]{Math.PI / 2}, line.principalAngles(plane), TOL);
+        assertArrayEquals(new double[]{Math.PI / 2}, plane.principalAngles(line), TOL);
+    }
+
+    @Test
+    void principalAnglesOfTiltedLineAgainstPlane() {
+        Subspace line = new Subspace(new Vector(1, 1, 0));
+        Subspace plane = new Subspace(new Vector(1, 0, 0), new Vector(0, 0, 1));
+
+        assertArrayEquals(new double[]{Math.PI / 4}, line.principalAngles(plane), TOL);
+        assertArrayEquals(new double[]{Math.PI / 4}, plane.principalAngles(line), TOL);
+    }
+
+    @Test
+    void intersectionAgreesInBothOrdersForUnequalDims() {
+        Subspace line = new Subspace(new Vector(1, 0, 0));
+        Subspace plane = new Subspace(new Vector(0, 1, 0), new Vector(0, 0, 1));
+        assertEquals(0, line.intersection(plane).dim());
+        assertEquals(0, plane.intersection(line).dim());
+
+        Subspace inside = new Subspace(new Vector(0, 1, 1));
+        assertEquals(1, inside.intersection(plane).dim());
+        assertEquals(1, plane.intersection(inside).dim());
+    }
+
+    @Test
+    void intersectionOfPlanesInFourSpace() {
+        Subspace a = new Subspace(new Vector(1, 0, 0, 0), new Vector(0, 1, 0, 0), new Vector(0, 0, 1, 0));
+        Subspace b = new Subspace(new Vector(0, 1, 0, 0), new Vector(0, 0, 0, 1));
+
+        assertEquals(1, a.intersection(b).dim());
+        assertEquals(1, b.intersection(a).dim());
+        assertArrayEquals(a.principalAngles(b), b.principalAngles(a), TOL);
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.github.orangese.linalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TaskGraphTest {
+
+    @Test
+    void nestedRunsOnTheSamePoolDoNotStarveIt() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        AtomicInteger ran = new AtomicInteger();
+        try {
+            // every worker blocks in run() while the graph's own tasks need a worker of the same pool
+            pool.submit(() -> IntStream.range(0, 8).parallel().forEach(i -> {
+                TaskGraph graph = new TaskGraph();
+                TaskGraph.Task previous = null;
+                for (int k = 0; k < 20; k++) {
+                    previous = graph.add("t" + k, 0, () -> {
+                        ran.incrementAndGet();
+                        sleep();
+                    }, previous);
+                }
+                graph.run(pool);
+            })).get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(8 * 20, ran.get());
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
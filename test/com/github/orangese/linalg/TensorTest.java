@@ -0,0 +1,205 @@
+package com.github.orangese.linalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TensorTest {
+
+    @Test
+    void broadcastViewsSumInEveryModeWithoutExpanding() {
+        final int rows = 4000;
+        final int cols = 2000;
+        double[] row = new double[cols];
+        for (int j = 0; j < cols; j++) {
+            row[j] = j / 2.0;
+        }
+        // 64MB if it were ever materialized
+        Tensor view = new Tensor(row, Shape.of(1, cols)).broadcastTo(Shape.of(rows, cols));
+        final double rowSum = (cols - 1) * (double) cols / 4;
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for (Reduction.Mode mode : Reduction.Mode.values()) {
+            // once to load classes, then measured
+            view.sum(mode);
+            final long before = threads.getCurrentThreadAllocatedBytes();
+            final double total = view.sum(mode);
+            final Tensor down = view.sum(new int[]{0}, mode);
+            final Tensor across = view.sum(new int[]{1}, mode);
+            final long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+            assertTrue(allocated < (long) rows * cols * Double.BYTES / 16, mode + " allocated " + allocated);
+            assertEquals(rows * rowSum, total, 0);
+            assertEquals(Shape.of(cols), down.shape());
+            assertEquals(Shape.of(rows), across.shape());
+            for (int j = 0; j < cols; j += 97) {
+                assertEquals(rows * row[j], down.get(j), 0);
+            }
+            for (int i = 0; i < rows; i += 97) {
+                assertEquals(rowSum, across.get(i), 0);
+            }
+        }
+    }
+
+    @Test
+    void combineBroadcastsTrailingAxes() {
+        Tensor a = tensor(new double[]{1, 2, 3, 4, 5, 6}, 2, 1, 3);
+        Tensor b = tensor(new double[]{10, 20}, 2, 1);
+
+        Tensor sum = a.add(b);
+        assertEquals(Shape.of(2, 2, 3), sum.shape());
+        assertArrayEquals(new double[]{11, 12, 13, 21, 22, 23, 14, 15, 16, 24, 25, 26}, values(sum));
+
+        Tensor difference = b.subtract(a);
+        assertEquals(Shape.of(2, 2, 3), difference.shape());
+        assertArrayEquals(new double[]{9, 8, 7, 19, 18, 17, 6, 5, 4, 16, 15, 14}, values(difference));
+
+        // a transposed view broadcast against a row
+        Tensor cols = tensor(new double[]{1, 2, 3, 4, 5, 6}, 2, 3).transpose();
+        assertArrayEquals(new double[]{1, 8, 2, 10, 3, 12}, values(cols.mul(tensor(new double[]{1, 2}, 2))));
+
+        assertThrows(IllegalArgumentException.class, () -> a.add(tensor(new double[]{1, 2}, 2)));
+    }
+
+    @Test
+    void negativeAxesCountFromTheEnd() {
+        Tensor t = tensor(new double[]{1, 2, 3, 4, 5, 6}, 2, 3);
+
+        assertArrayEquals(new double[]{6, 15}, values(t.sum(-1)));
+        assertArrayEquals(new double[]{5, 7, 9}, values(t.sum(-2)));
+        assertArrayEquals(new double[]{3, 6}, values(t.max(-1)));
+        assertArrayEquals(new double[]{1, 2, 3}, values(t.min(-2)));
+        assertArrayEquals(new double[]{1, 4, 2, 5, 3, 6}, values(t.transpose(-1, -2)));
+        assertEquals(6, t.get(-1, -1), 0);
+        assertEquals(4, t.get(-1, 0), 0);
+
+        assertThrows(IllegalArgumentException.class, () -> t.sum(-3));
+        assertThrows(IllegalArgumentException.class, () -> t.sum(2));
+    }
+
+    @Test
+    void reshapeInfersOneDimOnNonContiguousViews() {
+        Tensor t = tensor(new double[]{1, 2, 3, 4, 5, 6}, 2, 3);
+        Tensor transposed = t.transpose();
+
+        Tensor flat = transposed.reshape(-1);
+        assertEquals(Shape.of(6), flat.shape());
+        assertArrayEquals(new double[]{1, 4, 2, 5, 3, 6}, values(flat));
+
+        Tensor rows = transposed.reshape(2, -1);
+        assertEquals(Shape.of(2, 3), rows.shape());
+        assertArrayEquals(new double[]{1, 4, 2, 5, 3, 6}, values(rows));
+
+        // the reshaped copy of a non-contiguous view is not a view of the original
+        rows.set(100, 0, 0);
+        assertEquals(1, t.get(0, 0), 0);
+
+        Tensor broadcast = t.broadcastTo(Shape.of(2, 2, 3)).reshape(-1, 3);
+        assertEquals(Shape.of(4, 3), broadcast.shape());
+        assertArrayEquals(new double[]{1, 2, 3, 4, 5, 6, 1, 2, 3, 4, 5, 6}, values(broadcast));
+
+        assertThrows(IllegalArgumentException.class, () -> transposed.reshape(-1, -1));
+        assertThrows(IllegalArgumentException.class, () -> transposed.reshape(4, -1));
+    }
+
+    @Test
+    void batchedMatmulPromotesOneDimOperands() {
+        Tensor batch = tensor(new double[]{1, 2, 3, 4, 5, 6, 1, 0, 0, 0, 1, 0}, 2, 2, 3);
+        Tensor ones = tensor(new double[]{1, 1, 1}, 3);
+        Tensor pair = tensor(new double[]{1, 2}, 2);
+
+        // a 1-d right operand is a column that is dropped again
+        Tensor right = batch.matmul(ones);
+        assertEquals(Shape.of(2, 2), right.shape());
+        assertArrayEquals(new double[]{6, 15, 1, 1}, values(right));
+
+        // a 1-d left operand is a row that is dropped again
+        Tensor left = pair.matmul(batch);
+        assertEquals(Shape.of(2, 3), left.shape());
+        assertArrayEquals(new double[]{9, 12, 15, 1, 2, 0}, values(left));
+
+        Tensor inner = ones.matmul(ones);
+        assertEquals(Shape.of(1), inner.shape());
+        assertEquals(3, inner.get(0), 0);
+
+        // a 2-d operand broadcasts over the batch
+        Tensor shared = batch.matmul(tensor(new double[]{1, 0, 0, 1, 1, 1}, 3, 2));
+        assertEquals(Shape.of(2, 2, 2), shared.shape());
+        assertArrayEquals(new double[]{4, 5, 10, 11, 1, 0, 0, 1}, values(shared));
+
+        assertThrows(IllegalArgumentException.class, () -> batch.matmul(pair));
+    }
+
+    @Test
+    void reductionsDropTheReducedAxes() {
+        double[] data = new double[24];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i;
+        }
+        Tensor t = tensor(data, 2, 3, 4);
+
+        for (Reduction.Mode mode : Reduction.Mode.values()) {
+            Tensor middle = t.sum(new int[]{1}, mode);
+            assertEquals(Shape.of(2, 4), middle.shape());
+            assertArrayEquals(new double[]{12, 15, 18, 21, 48, 51, 54, 57}, values(middle));
+
+            Tensor outer = t.sum(new int[]{0, 2}, mode);
+            assertEquals(Shape.of(3), outer.shape());
+            assertArrayEquals(new double[]{60, 92, 124}, values(outer));
+
+            Tensor all = t.sum(new int[]{0, 1, 2}, mode);
+            assertEquals(Shape.of(1), all.shape());
+            assertEquals(276, all.get(0), 0);
+            assertEquals(276, t.sum(mode), 0);
+
+            Tensor mean = t.mean(new int[]{1}, mode);
+            assertEquals(Shape.of(2, 4), mean.shape());
+            assertArrayEquals(new double[]{4, 5, 6, 7, 16, 17, 18, 19}, values(mean));
+        }
+        assertArrayEquals(new double[]{3, 7, 11, 15, 19, 23}, values(t.max(2)));
+    }
+
+    @Test
+    void reductionsOfZeroSizeShapes() {
+        Tensor empty = tensor(new double[0], 3, 0);
+
+        for (Reduction.Mode mode : Reduction.Mode.values()) {
+            Tensor rows = empty.sum(new int[]{1}, mode);
+            assertEquals(Shape.of(3), rows.shape());
+            assertArrayEquals(new double[]{0, 0, 0}, values(rows));
+
+            Tensor cols = empty.sum(new int[]{0}, mode);
+            assertEquals(Shape.of(0), cols.shape());
+            assertEquals(0, cols.size());
+            assertEquals(0, empty.sum(mode), 0);
+
+            // as in numpy, the mean of nothing is NaN
+            assertArrayEquals(new double[]{Double.NaN, Double.NaN, Double.NaN}, values(empty.mean(new int[]{1}, mode)));
+            assertEquals(0, empty.mean(new int[]{0}, mode).size());
+            assertTrue(Double.isNaN(empty.mean(new int[]{0, 1}, mode).get(0)));
+        }
+        assertArrayEquals(new double[]{Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.NEGATIVE_INFINITY}, values(empty.max(1)));
+    }
+
+    private static Tensor tensor(double[] data, int... dims) {
+        return new Tensor(data, Shape.of(dims));
+    }
+
+    // elements in row-major order
+    private static double[] values(Tensor t) {
+        Tensor flat = t.reshape(-1);
+        double[] values = new double[flat.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = flat.get(i);
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.github.orangese.linalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TiledLUPDecompTest {
+
+    @Test
+    void tallPanelsThroughAMinimalCacheMatchInCoreLU() throws IOException {
+        // 6 tile rows of a 40 x 40 matrix through a four-tile cache, with a partial last tile
+        Matrix mat = random(40, 40, 1);
+        Matrix b = random(40, 3, 2);
+        Path dir = Files.createTempDirectory("tiledlu");
+        try (TiledMatrix tiled = TiledMatrix.fromMatrix(mat, dir.resolve("a.tiles"), 7, new TileCache(4))) {
+            TiledLUPDecomp lu = new TiledLUPDecomp(tiled);
+            LUPDecomp inCore = new LUPDecomp(mat);
+
+            assertFalse(lu.isSingular());
+            assertArrayEquals(inCore.solve(b).data(), lu.solve(b).data(), 1e-9);
+        } finally {
+            Files.deleteIfExists(dir.resolve("a.tiles"));
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    void singularityAgreesWithInCoreLUAtEveryScale() throws IOException {
+        Path dir = Files.createTempDirectory("tiledlu");
+        try {
+            for (double scale : new double[]{1e-12, 1, 1e12}) {
+                Matrix regular = random(10, 10, 3);
+                Matrix deficient = random(10, 10, 4);
+                for (int j = 0; j < 10; j++) {
+                    deficient.set(9, j, deficient.get(0, j) + deficient.get(1, j));
+                }
+                for (int i = 0; i < 10; i++) {
+                    for (int j = 0; j < 10; j++) {
+                        regular.set(i, j, scale * regular.get(i, j));
+                        deficient.set(i, j, scale * deficient.get(i, j));
+                    }
+                }
+
+                assertEquals(new LUPDecomp(regular).isSingular(), singular(regular, dir));
+                assertEquals(new LUPDecomp(deficient).isSingular(), singular(deficient, dir));
+                assertFalse(singular(regular, dir));
+                assertTrue(singular(deficient, dir));
+            }
+        } finally {
+            Files.deleteIfExists(dir.resolve("a.tiles"));
+            Files.delete(dir);
+        }
+    }
+
+    private static boolean singular(Matrix mat, Path dir) throws IOException {
+        try (TiledMatrix tiled = TiledMatrix.fromMatrix(mat, dir.resolve("a.tiles"), 4, new TileCache(4))) {
+            return new TiledLUPDecomp(tiled).isSingular();
+        }
+    }
+
+    private static Matrix random(int rows, int cols, long seed) {
+        Random random = new Random(seed);
+        Matrix mat = new Matrix(new Shape(rows, cols));
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                mat.set(i, j, random.nextGaussian());
+            }
+        }
+        return mat;
+    }
+
+}
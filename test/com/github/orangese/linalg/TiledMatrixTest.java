@@ -0,0 +1,50 @@
+package com.github.orangese.linalg;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TiledMatrixTest {
+
+    @Test
+    void tilesSurviveEvictionAndReopen() throws IOException {
+        Path dir = Files.createTempDirectory("tiles");
+        Path file = dir.resolve("a.tiles");
+        Matrix mat = new Matrix(new Shape(37, 29));
+        Random random = new Random(3);
+        for (int i = 0; i < mat.rowDim(); i++) {
+            for (int j = 0; j < mat.colDim(); j++) {
+                mat.set(i, j, random.nextGaussian());
+            }
+        }
+
+        // 20 tiles through a four-tile cache, so most of them go through the file
+        TileCache cache = new TileCache(4);
+        try (TiledMatrix tiled = TiledMatrix.fromMatrix(mat, file, 8, cache)) {
+            tiled.set(36, 28, 7);
+            mat.set(36, 28, 7);
+            assertEquals(0, maxAbs(tiled.toMatrix().subtract(mat)));
+            assertTrue(cache.evictions() > 0);
+        }
+        try (TiledMatrix reopened = TiledMatrix.open(file, mat.shape(), 8, new TileCache(4))) {
+            assertEquals(0, maxAbs(reopened.toMatrix().subtract(mat)));
+        }
+        Files.delete(file);
+        Files.delete(dir);
+    }
+
+    private static double maxAbs(Matrix mat) {
+        double max = 0;
+        for (double val : mat.data()) {
+            max = Math.max(max, Math.abs(val));
+        }
+        return max;
+    }
+
+}